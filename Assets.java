@@ -0,0 +1,70 @@
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+// Decoded images shared by the whole game.
+// Every picture is decoded once per display size, straight to that size, and the same Image is used by
+// every cell that shows it (an ImageView is still needed per cell, a node can only be shown once).
+// preload() decodes the pictures the game always needs on a background thread at startup; get() waits
+// for an image that is still being decoded, or decodes an image nobody asked for before.
+public final class Assets {
+	// Display sizes in pixels: pictures inside cells, and the hook and level icons
+	static final int CELL_SIZE = 20;
+	static final int ICON_SIZE = 30;
+
+	// Images by resource name and size
+	private static final Map<String, CompletableFuture<Image>> images = new ConcurrentHashMap<>();
+	private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "asset-loader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private Assets() {
+	}
+
+	// Start decoding the game's pictures at the sizes they are shown at
+	public static void preload() {
+		request("wormInApple.png", CELL_SIZE);
+		request("hook.png", CELL_SIZE);
+		request("hook.png", ICON_SIZE);
+		request("wormInApple.png", ICON_SIZE);
+		request("redapple.png", ICON_SIZE);
+		request("greenapple.png", ICON_SIZE);
+	}
+
+	// The image of a resource decoded to size x size pixels (keeping its aspect ratio)
+	public static Image get(String name, int size) {
+		return request(name, size).join();
+	}
+
+	// A new view of a shared image
+	public static ImageView view(String name, int size) {
+		return new ImageView(get(name, size));
+	}
+
+	private static CompletableFuture<Image> request(String name, int size) {
+		return images.computeIfAbsent(name + "@" + size,
+				key -> CompletableFuture.supplyAsync(() -> decode(name, size), loader));
+	}
+
+	private static Image decode(String name, int size) {
+		try (InputStream in = Assets.class.getResourceAsStream(name)) {
+			if (in == null) {
+				System.out.println("Image " + name + " not found");
+				return null;
+			}
+			return new Image(in, size, size, true, true);
+		} catch (Exception e) {
+			// error condition
+			System.out.println("Failed to load image " + name + ": " + e.getMessage());
+			return null;
+		}
+	}
+}
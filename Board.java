@@ -0,0 +1,351 @@
+import java.util.SplittableRandom;
+
+// Headless game board: holds the whole game state and rules without any JavaFX dependency.
+// Every cell is packed into a single byte so large boards stay small in memory:
+//   bits 0-3: number of worms in the 3x3 vicinity (0-8), computed once when worms are placed
+//   bit 4   : the cell has a worm
+//   bit 5   : the cell has been revealed
+//   bit 6   : the cell has a hook (flag) on it
+public class Board {
+	// Bit masks for the packed cell byte
+	static final int ADJ_MASK = 0x0F;
+	static final int WORM = 0x10;
+	static final int REVEALED = 0x20;
+	static final int FLAGGED = 0x40;
+
+	// Kinds of moves for applyMoves()
+	public static final int REVEAL_MOVE = 0;
+	public static final int FLAG_MOVE = 1;
+	public static final int UNFLAG_MOVE = 2;
+	// A worm shown by a hint, see revealWormHint()
+	public static final int HINT_MOVE = 3;
+
+	// Result of revealing a cell
+	public enum Outcome {
+		IGNORED,	// nothing happened (already revealed, hooked, or the game is over)
+		SAFE,		// a safe cell (and possibly its neighbours) was revealed
+		WORM,		// a worm was revealed, game lost
+		WON			// the last safe cell was revealed, game won
+	}
+
+	// Board dimensions and worm count
+	final int rows;
+	final int cols;
+	final int wormsTotal;
+	// Packed cell states, index = row * cols + col
+	final byte[] cells;
+	// Hooks left to place
+	int hooksLeft;
+	// Safe cells that still have to be revealed to win
+	int unrevealedSafeCells;
+	// Set once a worm is revealed or all safe cells are revealed
+	boolean finished;
+	// Seed the worms were placed with, the same seed always gives the same layout
+	long seed;
+	// Cells revealed by the last reveal() in reveal order; also used as the flood fill queue
+	int[] revealedCells;
+	int revealedCount;
+
+	public Board(int rows, int cols, int wormsTotal) {
+		// a board needs at least one safe cell to be winnable
+		if (rows <= 0 || cols <= 0 || wormsTotal < 0 || wormsTotal >= rows * cols) {
+			throw new IllegalArgumentException("Invalid board: " + rows + "x" + cols + " with " + wormsTotal + " worms");
+		}
+		this.rows = rows;
+		this.cols = cols;
+		this.wormsTotal = wormsTotal;
+		this.cells = new byte[rows * cols];
+		this.hooksLeft = wormsTotal;
+		this.unrevealedSafeCells = rows * cols - wormsTotal;
+	}
+
+	// Copy of the board state, for work on other threads
+	public Board copy() {
+		Board copy = new Board(rows, cols, wormsTotal);
+		System.arraycopy(cells, 0, copy.cells, 0, cells.length);
+		copy.hooksLeft = hooksLeft;
+		copy.unrevealedSafeCells = unrevealedSafeCells;
+		copy.finished = finished;
+		copy.seed = seed;
+		return copy;
+	}
+
+	// Board rebuilt from saved cell states (see SaveFile) without replaying any move
+	public static Board restore(int rows, int cols, int wormsTotal, long seed, byte[] savedCells, int hooksLeft) {
+		Board board = new Board(rows, cols, wormsTotal);
+		if (savedCells.length != board.cells.length) {
+			throw new IllegalArgumentException("Saved cells don't match a " + rows + "x" + cols + " board");
+		}
+		System.arraycopy(savedCells, 0, board.cells, 0, savedCells.length);
+		board.seed = seed;
+		board.hooksLeft = hooksLeft;
+		board.unrevealedSafeCells = 0;
+		for (byte cell : savedCells) {
+			if ((cell & (WORM | REVEALED)) == 0) {
+				board.unrevealedSafeCells++;
+			}
+		}
+		return board;
+	}
+
+	// Place the worms from a seed; the adjacency counts are updated as every worm is placed
+	public void placeWorms(long seed) {
+		placeWorms(seed, -1);
+	}
+
+	// Place the worms from a seed outside the 3x3 vicinity of safeIndex (no safe cell if it is -1),
+	// so that the first click on safeIndex opens an area.
+	// Uses Floyd's sampling: exactly one random draw per worm whatever the density, with the worm bits
+	// themselves as the set of chosen cells. Draws are made over the cells outside the safe area
+	// ("free" cells), which are mapped to board indices by freeToIndex().
+	public void placeWorms(long seed, int safeIndex) {
+		this.seed = seed;
+		int safeTop = 0, safeLeft = 0, safeHeight = 0, safeWidth = 0;
+		if (safeIndex >= 0) {
+			int safeRow = safeIndex / cols;
+			int safeCol = safeIndex % cols;
+			safeTop = Math.max(0, safeRow - 1);
+			safeLeft = Math.max(0, safeCol - 1);
+			safeHeight = Math.min(rows - 1, safeRow + 1) - safeTop + 1;
+			safeWidth = Math.min(cols - 1, safeCol + 1) - safeLeft + 1;
+		}
+		int freeCells = cells.length - safeHeight * safeWidth;
+		if (wormsTotal > freeCells) {
+			throw new IllegalArgumentException("Too many worms to keep a safe first click");
+		}
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int j = freeCells - wormsTotal; j < freeCells; j++) {
+			int index = freeToIndex(random.nextInt(j + 1), safeTop, safeLeft, safeHeight, safeWidth);
+			// if that cell was already chosen, cell j (never drawn before) is taken instead
+			if ((cells[index] & WORM) != 0) {
+				index = freeToIndex(j, safeTop, safeLeft, safeHeight, safeWidth);
+			}
+			addWorm(index);
+		}
+	}
+
+	// Board index of the free-th cell outside the safe rectangle, in row order
+	private int freeToIndex(int free, int safeTop, int safeLeft, int safeHeight, int safeWidth) {
+		int before = safeTop * cols;
+		int perRow = cols - safeWidth;
+		int beside = safeHeight * perRow;
+		if (free < before) {
+			return free;
+		}
+		free -= before;
+		if (free < beside) {
+			int offset = free % perRow;
+			return (safeTop + free / perRow) * cols + (offset < safeLeft ? offset : offset + safeWidth);
+		}
+		return (safeTop + safeHeight) * cols + (free - beside);
+	}
+
+	// Put a worm on a cell and add one to the adjacency count of its 3x3 vicinity
+	private void addWorm(int index) {
+		cells[index] |= WORM;
+		int row = index / cols;
+		int col = index % cols;
+		for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+			for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+				if (r != row || c != col) {
+					cells[r * cols + c]++;
+				}
+			}
+		}
+	}
+
+	// Reveal a cell; a cell without adjacent worms also reveals its neighbours.
+	// The revealed cells can be read back with getRevealedCount()/getRevealedCell().
+	public Outcome reveal(int index) {
+		revealedCount = 0;
+		// hooked or already revealed cells can't be opened
+		if (finished || (cells[index] & (REVEALED | FLAGGED)) != 0) {
+			return Outcome.IGNORED;
+		}
+		if (revealedCells == null) {
+			revealedCells = new int[cells.length];
+		}
+		// a worm ends the game
+		if ((cells[index] & WORM) != 0) {
+			cells[index] |= REVEALED;
+			revealedCells[revealedCount++] = index;
+			finished = true;
+			return Outcome.WORM;
+		}
+		open(index);
+		// check for victory
+		if (unrevealedSafeCells == 0) {
+			finished = true;
+			return Outcome.WON;
+		}
+		return Outcome.SAFE;
+	}
+
+	// Open a safe cell and flood fill the opening around it.
+	// revealedCells works as the queue: a cell is marked revealed when it is queued, so every
+	// cell is visited once and the work is proportional to the size of the opening.
+	private void open(int start) {
+		cells[start] |= REVEALED;
+		revealedCells[revealedCount++] = start;
+		for (int head = 0; head < revealedCount; head++) {
+			int index = revealedCells[head];
+			// only cells without adjacent worms spread to their neighbours
+			if ((cells[index] & ADJ_MASK) != 0) {
+				continue;
+			}
+			int row = index / cols;
+			int col = index % cols;
+			for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+				for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+					int next = r * cols + c;
+					// a zero cell never has a worm next to it, so only hooks and revealed cells stop the fill
+					if ((cells[next] & (REVEALED | FLAGGED | WORM)) == 0) {
+						cells[next] |= REVEALED;
+						revealedCells[revealedCount++] = next;
+					}
+				}
+			}
+		}
+		unrevealedSafeCells -= revealedCount;
+	}
+
+	// Place a hook on an unrevealed cell; returns false if no hook was placed
+	public boolean flag(int index) {
+		if (finished || hooksLeft == 0 || (cells[index] & (REVEALED | FLAGGED)) != 0) {
+			return false;
+		}
+		cells[index] |= FLAGGED;
+		hooksLeft--;
+		return true;
+	}
+
+	// Remove a hook from a cell; returns false if the cell had no hook
+	public boolean unflag(int index) {
+		if (finished || (cells[index] & FLAGGED) == 0) {
+			return false;
+		}
+		cells[index] &= ~FLAGGED;
+		hooksLeft++;
+		return true;
+	}
+
+	// A move for applyMoves(): the kind in the low 2 bits, the cell index above
+	public static int move(int kind, int index) {
+		return index << 2 | kind;
+	}
+
+	// Apply moves[from] to moves[to - 1] in one pass, with the same rules as reveal(), flag(), unflag()
+	// and revealWormHint(), and list every cell they changed in diff (which is cleared first).
+	// Moves after the end of the game are not applied. Returns the outcome of the batch, also kept in diff with the number of applied moves.
+	public Outcome applyMoves(int[] moves, int from, int to, CellDiff diff) {
+		if (cells.length > CellDiff.MAX_CELLS) {
+			throw new IllegalStateException("Board too large for a cell diff: " + cells.length + " cells");
+		}
+		diff.clear();
+		boolean wasFinished = finished;
+		int next = from;
+		while (next < to && !finished) {
+			int move = moves[next++];
+			int index = move >>> 2;
+			switch (move & 3) {
+			case REVEAL_MOVE:
+				reveal(index);
+				for (int i = 0; i < revealedCount; i++) {
+					diff.add(revealedCells[i], cells[revealedCells[i]]);
+				}
+				break;
+			case FLAG_MOVE:
+				if (flag(index)) {
+					diff.add(index, cells[index]);
+				}
+				break;
+			case UNFLAG_MOVE:
+				if (unflag(index)) {
+					diff.add(index, cells[index]);
+				}
+				break;
+			case HINT_MOVE:
+				if (revealWormHint(index)) {
+					diff.add(index, cells[index]);
+				}
+				break;
+			}
+		}
+		Outcome outcome;
+		if (finished && !wasFinished) {
+			outcome = unrevealedSafeCells == 0 ? Outcome.WON : Outcome.WORM;
+		} else {
+			outcome = diff.size() > 0 ? Outcome.SAFE : Outcome.IGNORED;
+		}
+		diff.finish(outcome, next - from);
+		return outcome;
+	}
+
+	// Reveal a hidden, unhooked worm as a hint without ending the game; returns false if the cell isn't one
+	public boolean revealWormHint(int index) {
+		if (finished || (cells[index] & (WORM | REVEALED | FLAGGED)) != WORM) {
+			return false;
+		}
+		cells[index] |= REVEALED;
+		return true;
+	}
+
+	// Cell state accessors
+	public int size() {
+		return cells.length;
+	}
+
+	public boolean hasWorm(int index) {
+		return (cells[index] & WORM) != 0;
+	}
+
+	public boolean isRevealed(int index) {
+		return (cells[index] & REVEALED) != 0;
+	}
+
+	public boolean isFlagged(int index) {
+		return (cells[index] & FLAGGED) != 0;
+	}
+
+	public int adjacentWorms(int index) {
+		return cells[index] & ADJ_MASK;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	public int getHooksLeft() {
+		return hooksLeft;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getUnrevealedSafeCells() {
+		return unrevealedSafeCells;
+	}
+
+	// Number of cells revealed by the last reveal()
+	public int getRevealedCount() {
+		return revealedCount;
+	}
+
+	// The i-th cell index revealed by the last reveal()
+	public int getRevealedCell(int i) {
+		return revealedCells[i];
+	}
+
+	// Debugging: answer map of where the worms are, one line per row (0 is safe, 1 is a worm)
+	public String answerMap() {
+		StringBuilder map = new StringBuilder();
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cols; col++) {
+				map.append(hasWorm(row * cols + col) ? '1' : '0');
+			}
+			map.append('\n');
+		}
+		return map.toString();
+	}
+}
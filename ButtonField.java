@@ -0,0 +1,102 @@
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.GridPane;
+
+// Playing field of one button per cell, for boards up to the size of the button grid.
+// The buttons are kept across games: a new board only moves the buttons whose grid position changes
+// and adds or removes the buttons the size change needs. Every button has its board index as user data.
+// Changes go through the UiBus, so a cascade reveal is applied in one pulse.
+public class ButtonField implements FieldRenderer {
+	private final GridPane grid;
+	private final UiBus uiBus;
+	// Cell buttons kept across games, the first board.size() of them are on the field
+	private Button[] pool = new Button[0];
+
+	public ButtonField(GridPane grid, UiBus uiBus) {
+		this.grid = grid;
+		this.uiBus = uiBus;
+	}
+
+	@Override public void showBoard(Board board) {
+		// apply changes still queued for the buttons before they are redrawn
+		uiBus.flush();
+		// grow the pool if the board has more cells than any board before
+		int size = board.size();
+		if (pool.length < size) {
+			int pooled = pool.length;
+			pool = Arrays.copyOf(pool, size);
+			for (int index = pooled; index < size; index++) {
+				pool[index] = createCellButton(index);
+			}
+		}
+		for (int index = 0; index < size; index++) {
+			Button button = pool[index];
+			// move the button if the board width changed
+			int row = index / board.cols;
+			int col = index % board.cols;
+			if (GridPane.getRowIndex(button) == null || GridPane.getRowIndex(button) != row
+					|| GridPane.getColumnIndex(button) != col) {
+				GridPane.setRowIndex(button, row);
+				GridPane.setColumnIndex(button, col);
+			}
+			show(button, board.isRevealed(index), board.hasWorm(index), board.isFlagged(index), board.adjacentWorms(index));
+		}
+		// add or remove only the buttons the size change needs; removed buttons stay in the pool
+		List<Node> children = grid.getChildren();
+		if (children.size() > size) {
+			children.subList(size, children.size()).clear();
+		} else if (children.size() < size) {
+			children.addAll(Arrays.asList(pool).subList(children.size(), size));
+		}
+	}
+
+	@Override public void showChanges(Board board, CellDiff changes) {
+		for (int i = 0; i < changes.size(); i++) {
+			show(pool[changes.index(i)], changes.isRevealed(i), changes.hasWorm(i), changes.isFlagged(i),
+					changes.adjacentWorms(i));
+		}
+	}
+
+	// Show a cell: a revealed worm, a revealed count (disabled, nothing for 0), a hook, or a hidden cell
+	private void show(Button button, boolean revealed, boolean worm, boolean flagged, int adjacentWorms) {
+		uiBus.setText(button, revealed && !worm && adjacentWorms > 0 ? String.valueOf(adjacentWorms) : "");
+		if (revealed && worm) {
+			uiBus.setGraphic(button, cellImage("wormInApple.png"));
+		} else if (flagged) {
+			uiBus.setGraphic(button, cellImage("hook.png"));
+		} else {
+			uiBus.setGraphic(button, null);
+		}
+		uiBus.setDisable(button, revealed);
+	}
+
+	// A view of a shared cell-sized picture (a node can only be shown on one button)
+	private static ImageView cellImage(String name) {
+		ImageView view = Assets.view(name, Assets.CELL_SIZE);
+		view.setFitWidth(Assets.CELL_SIZE);
+		view.setFitHeight(Assets.CELL_SIZE);
+		return view;
+	}
+
+	// A new hidden cell button for the pool; the board index it stands for is its position in the pool
+	private static Button createCellButton(int index) {
+		// Create a button
+		Button button = new Button();
+		// Set a fixed size to make buttons square
+		button.setPrefWidth(40);
+		button.setPrefHeight(40);
+		// Set the button style (color, border, etc)
+		button.setStyle("-fx-background-color: maroon; -fx-text-fill: white; " +
+				"-fx-border-color: white; -fx-border-width: 1px; " +
+				"-fx-border-style: solid;");
+		// removes the color from the buttons, after clicking on them
+		button.setFocusTraversable(false);
+		// remember the board index of the button for the field's event handlers
+		button.setUserData(index);
+		return button;
+	}
+}
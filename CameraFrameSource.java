@@ -0,0 +1,30 @@
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.OpenCVFrameGrabber;
+
+// Live frames from a webcam
+public class CameraFrameSource implements FrameSource {
+	private final OpenCVFrameGrabber grabber;
+
+	public CameraFrameSource(int device, int width, int height) {
+		grabber = new OpenCVFrameGrabber(device);
+		// set the aspect ratio of the grabber for the frames grabbed
+		grabber.setImageWidth(width);
+		grabber.setImageHeight(height);
+	}
+
+	@Override public void start() throws Exception {
+		grabber.start();
+	}
+
+	// Blocks until the camera delivers the next frame
+	@Override public Frame grab() throws Exception {
+		return grabber.grab();
+	}
+
+	@Override public void close() throws FrameGrabber.Exception {
+		grabber.stop();      // Stop the camera grabber
+		grabber.release();   // Release resources
+		grabber.close();     // Close the grabber to clean up
+	}
+}
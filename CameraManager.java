@@ -0,0 +1,154 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.global.opencv_videoio;
+
+// Opens and closes the camera in the background so the hint dialog never waits for it.
+//  - preloadNatives() loads the OpenCV native libraries once the game is on screen.
+//  - prewarm() opens the camera as soon as the player points at the hint button, so it is usually
+//    delivering frames by the time the dialog opens.
+//  - release() keeps the open camera for a grace period (GRACE_SECONDS) after the dialog closes, so
+//    opening the dialog again is instant; the camera is only closed once nobody asked for it meanwhile.
+// Every change of the camera state happens on one background thread, so the camera is never opened
+// twice or closed while it is being handed out.
+public class CameraManager {
+	// Seconds an unused camera stays open
+	static final long GRACE_SECONDS = Long.getLong("wormsweeper.camera.grace", 30);
+
+	private final String description;
+	private final int width;
+	private final int height;
+	private final ScheduledExecutorService lifecycle = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "camera-lifecycle");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// The open camera and the pending close, only used on the lifecycle thread
+	private FrameSource source;
+	private ScheduledFuture<?> pendingClose;
+	private boolean inUse;
+
+	// A manager of the frame source described as in FrameSource.open()
+	public CameraManager(String description, int width, int height) {
+		this.description = description;
+		this.width = width;
+		this.height = height;
+	}
+
+	// Load the OpenCV native libraries in the background, so the first camera start doesn't have to
+	public void preloadNatives() {
+		lifecycle.execute(() -> {
+			long start = System.nanoTime();
+			try {
+				Loader.load(opencv_core.class);
+				Loader.load(opencv_imgproc.class);
+				Loader.load(opencv_videoio.class);
+				System.out.println("OpenCV loaded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+			} catch (Throwable e) {
+				// error condition (the camera start reports it again)
+				System.out.println("Failed to load OpenCV: " + e.getMessage());
+			}
+		});
+	}
+
+	// Open the camera ahead of use; it is closed again after the grace period unless acquired
+	public void prewarm() {
+		lifecycle.execute(() -> {
+			if (open() != null && !inUse) {
+				scheduleClose();
+			}
+		});
+	}
+
+	// The started camera for a dialog, opening it if needed; completes with null if it can't be opened
+	public CompletableFuture<FrameSource> acquire() {
+		return CompletableFuture.supplyAsync(() -> {
+			inUse = true;
+			cancelClose();
+			return open();
+		}, lifecycle);
+	}
+
+	// The dialog is done with the camera (its capture loop is stopped); keep it open for the grace period
+	public void release() {
+		lifecycle.execute(() -> {
+			inUse = false;
+			if (source != null) {
+				scheduleClose();
+			}
+		});
+	}
+
+	// Close the camera now and stop the background thread, when the program closes
+	public void shutdown() {
+		lifecycle.execute(this::close);
+		lifecycle.shutdown();
+		try {
+			lifecycle.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private FrameSource open() {
+		if (source != null) {
+			return source;
+		}
+		long start = System.nanoTime();
+		FrameSource opened = null;
+		try {
+			opened = FrameSource.open(description, width, height);
+			opened.start();
+		} catch (Exception | LinkageError e) {
+			// error condition (LinkageError: the OpenCV libraries are missing)
+			System.out.println("Failed to start grabber: " + e.getMessage());
+			if (opened != null) {
+				closeSource(opened);
+			}
+			return null;
+		}
+		System.out.println("Grabber started in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+		source = opened;
+		return source;
+	}
+
+	private void scheduleClose() {
+		cancelClose();
+		pendingClose = lifecycle.schedule(() -> {
+			if (!inUse) {
+				close();
+			}
+		}, GRACE_SECONDS, TimeUnit.SECONDS);
+	}
+
+	private void cancelClose() {
+		if (pendingClose != null) {
+			pendingClose.cancel(false);
+			pendingClose = null;
+		}
+	}
+
+	private void close() {
+		cancelClose();
+		if (source != null) {
+			closeSource(source);
+			source = null;
+			System.out.println("Camera closed.");
+		}
+	}
+
+	private static void closeSource(FrameSource source) {
+		try {
+			source.close();
+		} catch (Exception e) {
+			// error condition
+			System.out.println("Error stopping camera: " + e.getMessage());
+		}
+	}
+}
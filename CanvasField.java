@@ -0,0 +1,296 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.TransferMode;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+// Playing field for large boards: draws only the cells inside the visible viewport onto a canvas,
+// so the scene graph stays the same size whatever the board size is.
+// After a move only the changed cells are drawn again; scrolling, zooming, a new board or more changes
+// than there are cells on screen draw the whole viewport.
+// Drag with the mouse or use the scroll wheel to pan, hold Ctrl and scroll to zoom.
+public class CanvasField extends Region implements FieldRenderer {
+	// Zoom limits in pixels per cell
+	static final double MIN_CELL_SIZE = 4;
+	static final double MAX_CELL_SIZE = 60;
+	// Below this cell size numbers and pictures are not readable, only colors are drawn
+	static final double DETAIL_CELL_SIZE = 12;
+	// Cell colors, same as the buttons of the small field (revealed cells look like disabled buttons)
+	static final Color HIDDEN_COLOR = Color.MAROON;
+	static final Color REVEALED_COLOR = Color.web("#c69292");
+	static final Color BORDER_COLOR = Color.WHITE;
+	// Adjacent worm count labels, index 0 is left empty
+	static final String[] COUNT_LABELS = {"", "1", "2", "3", "4", "5", "6", "7", "8"};
+
+	private final Canvas canvas = new Canvas();
+	// Shared images at the largest size drawn (half of MAX_CELL_SIZE)
+	private final Image wormImage = Assets.get("wormInApple.png", Assets.ICON_SIZE);
+	private final Image hookImage = Assets.get("hook.png", Assets.ICON_SIZE);
+
+	// Board being shown
+	private Board board;
+	// Pixels per cell and the board position (in pixels) of the top left corner of the viewport
+	private double cellSize = 30;
+	private double scrollX;
+	private double scrollY;
+	// Set when the canvas has to be drawn again on the next pulse
+	private boolean dirty;
+	// Cells to draw again on the next pulse, unless the whole canvas is drawn
+	private int[] changed = new int[64];
+	private int changedCount;
+	// Pointer position of the last pan drag event
+	private double dragX;
+	private double dragY;
+
+	// Game actions triggered by the player, by cell index
+	private IntConsumer onReveal = index -> {};
+	private IntPredicate onHook = index -> false;
+	private IntConsumer onUnhook = index -> {};
+
+	public CanvasField() {
+		getChildren().add(canvas);
+
+		// draw at most once per pulse, and only if something changed
+		new AnimationTimer() {
+			@Override public void handle(long now) {
+				if (dirty) {
+					dirty = false;
+					changedCount = 0;
+					draw();
+				} else if (changedCount > 0) {
+					drawChanged();
+					changedCount = 0;
+				}
+			}
+		}.start();
+
+		// remember where a pan drag starts
+		setOnMousePressed(event -> {
+			dragX = event.getX();
+			dragY = event.getY();
+		});
+		// dragging the mouse pans the viewport
+		setOnMouseDragged(event -> {
+			scrollBy(dragX - event.getX(), dragY - event.getY());
+			dragX = event.getX();
+			dragY = event.getY();
+		});
+		// a click without dragging reveals a cell (left) or removes a hook (right)
+		setOnMouseClicked(event -> {
+			int index = cellAt(event.getX(), event.getY());
+			if (index < 0 || !event.isStillSincePress()) {
+				return;
+			}
+			if (event.getButton() == MouseButton.PRIMARY) {
+				onReveal.accept(index);
+			} else if (event.getButton() == MouseButton.SECONDARY) {
+				onUnhook.accept(index);
+			}
+		});
+		// scroll wheel pans, Ctrl + scroll wheel zooms around the pointer
+		setOnScroll(event -> {
+			if (event.isControlDown()) {
+				zoom(event.getDeltaY() > 0 ? 1.25 : 0.8, event.getX(), event.getY());
+			} else {
+				scrollBy(-event.getDeltaX(), -event.getDeltaY());
+			}
+			event.consume();
+		});
+		// accept the hook image dragged from the hook count pane
+		setOnDragOver(event -> {
+			if (event.getDragboard().hasImage()) {
+				event.acceptTransferModes(TransferMode.MOVE);
+			}
+			event.consume();
+		});
+		// drop the hook on the cell under the pointer
+		setOnDragDropped(event -> {
+			int index = cellAt(event.getX(), event.getY());
+			event.setDropCompleted(index >= 0 && event.getDragboard().hasImage() && onHook.test(index));
+			event.consume();
+		});
+	}
+
+	// Show a new board, starting at the top left corner
+	public void setBoard(Board board) {
+		this.board = board;
+		scrollX = 0;
+		scrollY = 0;
+		requestRedraw();
+	}
+
+	@Override public void showBoard(Board board) {
+		setBoard(board);
+	}
+
+	// Draw the changed cells on the next pulse
+	@Override public void showChanges(Board board, CellDiff changes) {
+		if (board != this.board) {
+			setBoard(board);
+		}
+		if (dirty) {
+			return;
+		}
+		// the whole viewport is as cheap as this many cells
+		if (changedCount + changes.size() > visibleCells()) {
+			changedCount = 0;
+			requestRedraw();
+			return;
+		}
+		if (changedCount + changes.size() > changed.length) {
+			changed = Arrays.copyOf(changed, Math.max(changed.length * 2, changedCount + changes.size()));
+		}
+		for (int i = 0; i < changes.size(); i++) {
+			changed[changedCount++] = changes.index(i);
+		}
+	}
+
+	public void setOnReveal(IntConsumer onReveal) {
+		this.onReveal = onReveal;
+	}
+
+	public void setOnHook(IntPredicate onHook) {
+		this.onHook = onHook;
+	}
+
+	public void setOnUnhook(IntConsumer onUnhook) {
+		this.onUnhook = onUnhook;
+	}
+
+	// Draw the visible cells again on the next pulse
+	public void requestRedraw() {
+		dirty = true;
+	}
+
+	// Keep the canvas the same size as the region
+	@Override protected void layoutChildren() {
+		if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+			canvas.setWidth(getWidth());
+			canvas.setHeight(getHeight());
+			scrollBy(0, 0);
+		}
+	}
+
+	// Board index of the cell at a point of the region, or -1 outside the board
+	private int cellAt(double x, double y) {
+		if (board == null) {
+			return -1;
+		}
+		int col = (int) Math.floor((x + scrollX) / cellSize);
+		int row = (int) Math.floor((y + scrollY) / cellSize);
+		if (row < 0 || row >= board.rows || col < 0 || col >= board.cols) {
+			return -1;
+		}
+		return row * board.cols + col;
+	}
+
+	// Move the viewport, keeping it inside the board
+	private void scrollBy(double dx, double dy) {
+		if (board == null) {
+			return;
+		}
+		double maxX = Math.max(0, board.cols * cellSize - getWidth());
+		double maxY = Math.max(0, board.rows * cellSize - getHeight());
+		scrollX = Math.min(maxX, Math.max(0, scrollX + dx));
+		scrollY = Math.min(maxY, Math.max(0, scrollY + dy));
+		requestRedraw();
+	}
+
+	// Change the cell size, keeping the board point under (x, y) in place
+	private void zoom(double factor, double x, double y) {
+		double newSize = Math.min(MAX_CELL_SIZE, Math.max(MIN_CELL_SIZE, cellSize * factor));
+		double scale = newSize / cellSize;
+		cellSize = newSize;
+		scrollX = (scrollX + x) * scale - x;
+		scrollY = (scrollY + y) * scale - y;
+		scrollBy(0, 0);
+	}
+
+	// Number of cells that fit in the viewport (including partly visible ones)
+	private int visibleCells() {
+		return (int) ((getWidth() / cellSize + 2) * (getHeight() / cellSize + 2));
+	}
+
+	// Draw the cells that intersect the viewport
+	private void draw() {
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		double width = canvas.getWidth();
+		double height = canvas.getHeight();
+		gc.clearRect(0, 0, width, height);
+		if (board == null) {
+			return;
+		}
+		// range of visible rows and columns
+		int firstRow = (int) (scrollY / cellSize);
+		int firstCol = (int) (scrollX / cellSize);
+		int lastRow = Math.min(board.rows - 1, (int) ((scrollY + height) / cellSize));
+		int lastCol = Math.min(board.cols - 1, (int) ((scrollX + width) / cellSize));
+		prepare(gc);
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int col = firstCol; col <= lastCol; col++) {
+				drawCell(gc, row, col);
+			}
+		}
+	}
+
+	// Draw the changed cells that intersect the viewport over what is on the canvas
+	private void drawChanged() {
+		if (board == null) {
+			return;
+		}
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		int firstRow = (int) (scrollY / cellSize);
+		int firstCol = (int) (scrollX / cellSize);
+		int lastRow = (int) ((scrollY + canvas.getHeight()) / cellSize);
+		int lastCol = (int) ((scrollX + canvas.getWidth()) / cellSize);
+		prepare(gc);
+		for (int i = 0; i < changedCount; i++) {
+			int row = changed[i] / board.cols;
+			int col = changed[i] % board.cols;
+			if (row >= firstRow && row <= lastRow && col >= firstCol && col <= lastCol) {
+				drawCell(gc, row, col);
+			}
+		}
+	}
+
+	private void prepare(GraphicsContext gc) {
+		gc.setStroke(BORDER_COLOR);
+		gc.setLineWidth(1);
+		gc.setFont(Font.font(cellSize * 0.4));
+		gc.setTextAlign(TextAlignment.CENTER);
+		gc.setTextBaseline(VPos.CENTER);
+	}
+
+	// Draw one cell: its color, and its border, number or picture if the cells are large enough
+	private void drawCell(GraphicsContext gc, int row, int col) {
+		double x = col * cellSize - scrollX;
+		double y = row * cellSize - scrollY;
+		double imageSize = cellSize / 2;
+		int index = row * board.cols + col;
+		boolean revealed = board.isRevealed(index);
+		gc.setFill(revealed ? REVEALED_COLOR : HIDDEN_COLOR);
+		gc.fillRect(x, y, cellSize, cellSize);
+		if (cellSize < DETAIL_CELL_SIZE) {
+			return;
+		}
+		gc.strokeRect(x, y, cellSize, cellSize);
+		if (revealed && board.hasWorm(index)) {
+			gc.drawImage(wormImage, x + imageSize / 2, y + imageSize / 2, imageSize, imageSize);
+		} else if (revealed) {
+			gc.setFill(BORDER_COLOR);
+			gc.fillText(COUNT_LABELS[board.adjacentWorms(index)], x + cellSize / 2, y + cellSize / 2);
+		} else if (board.isFlagged(index)) {
+			gc.drawImage(hookImage, x + imageSize / 2, y + imageSize / 2, imageSize, imageSize);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.bytedeco.javacv.Frame;
+
+// Grabs and processes camera frames on its own thread and hands the latest result to the UI.
+//  - The frame rate adapts to the measured grab and processing times: the loop waits between frames
+//    so that processing takes at most about 80% of the time, and never runs faster than MAX_FPS.
+//  - After a slow frame the camera has usually queued an old frame: if the next grab returns at once
+//    (faster than QUEUED_GRAB_NANOS) the frame is dropped, a frame the grab had to wait for is fresh.
+//  - Results go to the UI through the UiBus under a single key: a newer result replaces one the UI
+//    hasn't shown yet and at most one is applied per pulse, so the JavaFX queue never builds a backlog.
+public class CaptureLoop {
+	static final int MAX_FPS = 30;
+	static final long MIN_FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / MAX_FPS;
+	// Slowest frame rate the loop backs off to
+	static final long MAX_FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+	// A grab returning faster than this after a slow frame returned a frame the camera had queued
+	static final long QUEUED_GRAB_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+	// The latest processed frame
+	public static final class Snapshot {
+		final boolean red;
+		// System.nanoTime() when the frame was grabbed
+		final long grabbedAt;
+
+		Snapshot(boolean red, long grabbedAt) {
+			this.red = red;
+			this.grabbedAt = grabbedAt;
+		}
+	}
+
+	private final FrameSource source;
+	private final FramePipeline pipeline;
+	private final UiBus uiBus;
+	// Called on the JavaFX application thread with the latest snapshot
+	private final Consumer<Snapshot> onFrame;
+	private final Thread thread;
+	private volatile boolean running;
+	// Average time to grab and to process a frame
+	private long averageGrabNanos;
+	private long averageProcessNanos;
+	private volatile long droppedFrames;
+	// Completed by the capture thread when it exits
+	private final CompletableFuture<Void> stopped = new CompletableFuture<>();
+
+	public CaptureLoop(FrameSource source, FramePipeline pipeline, UiBus uiBus, Consumer<Snapshot> onFrame) {
+		this.source = source;
+		this.pipeline = pipeline;
+		this.uiBus = uiBus;
+		this.onFrame = onFrame;
+		this.thread = new Thread(this::run, "camera-capture");
+		thread.setDaemon(true);
+	}
+
+	public void start() {
+		running = true;
+		thread.start();
+	}
+
+	// Stop grabbing without waiting. The thread may still be in grab() or process(): the source and the
+	// pipeline must not be closed before the returned future completes (on the capture thread, once it
+	// has exited), however long the camera takes to return the frame in progress.
+	public CompletableFuture<Void> stop() {
+		running = false;
+		thread.interrupt();
+		return stopped;
+	}
+
+	// Frames dropped because they were stale
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+
+	private void run() {
+		try {
+			capture();
+		} finally {
+			stopped.complete(null);
+		}
+	}
+
+	private void capture() {
+		// set after a frame took longer than the frame interval
+		boolean behind = false;
+		while (running) {
+			long start = System.nanoTime();
+			GameEvents.CameraFrame frameEvent = new GameEvents.CameraFrame();
+			frameEvent.begin();
+			try {
+				// Grab a frame from the camera
+				Frame frame = source.grab();
+				long grabbedAt = System.nanoTime();
+				// the camera kept capturing during a slow frame, skip the frame it queued meanwhile
+				if (behind && frame != null && grabbedAt - start < QUEUED_GRAB_NANOS) {
+					behind = false;
+					droppedFrames++;
+					continue;
+				}
+				behind = false;
+				averageGrabNanos = average(averageGrabNanos, grabbedAt - start);
+				Metrics.GRAB_NANOS.record(grabbedAt - start);
+				if (frame != null) {
+					boolean red = pipeline.process(frame);
+					publish(new Snapshot(red, grabbedAt));
+					averageProcessNanos = average(averageProcessNanos, System.nanoTime() - grabbedAt);
+					if (frameEvent.shouldCommit()) {
+						frameEvent.grabNanos = grabbedAt - start;
+						frameEvent.detectNanos = pipeline.getLastDetectNanos();
+						frameEvent.convertNanos = pipeline.getLastConvertNanos();
+						frameEvent.redPixels = pipeline.getLastRedArea();
+						frameEvent.red = red;
+						frameEvent.commit();
+					}
+				}
+			} catch (Exception e) {
+				// error condition
+				System.out.println("Error capturing camera frame: " + e.getMessage());
+			}
+			long work = System.nanoTime() - start;
+			// leave about a fifth of the processing time idle, within the frame rate limits
+			long interval = Math.min(MAX_FRAME_NANOS,
+					Math.max(MIN_FRAME_NANOS, averageGrabNanos + averageProcessNanos * 5 / 4));
+			if (work > interval) {
+				behind = true;
+			} else {
+				pause(interval - work);
+			}
+		}
+	}
+
+	// Moving average giving the newest sample a weight of 1/8
+	private static long average(long average, long sample) {
+		return average == 0 ? sample : (average * 7 + sample) / 8;
+	}
+
+	// Hand a snapshot to the UI, replacing one that hasn't been shown yet
+	private void publish(Snapshot snapshot) {
+		long publishedAt = System.nanoTime();
+		uiBus.run(this, () -> {
+			if (running) {
+				Metrics.UI_DELAY_NANOS.recordSince(publishedAt);
+				onFrame.accept(snapshot);
+				Metrics.FRAME_LATENCY_NANOS.recordSince(snapshot.grabbedAt);
+			}
+		});
+	}
+
+	private void pause(long nanos) {
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException e) {
+			// stop() interrupts the sleep, the loop condition ends the thread
+		}
+	}
+}
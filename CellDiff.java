@@ -0,0 +1,89 @@
+import java.util.Arrays;
+
+// Cells changed by a batch of moves (see Board.applyMoves()), as a compact list with one int per change:
+// cell index << 8 | new cell state, the state in the Board bit layout (adjacent worms in the low 4 bits).
+// The state only holds what the player can see: a hidden cell has just its FLAGGED bit, the worm and
+// adjacent worm bits are only kept for revealed cells (a diff is sent to clients of the GameServer).
+// A cell changed more than once appears once per change, in order, so the last entry has its final state.
+// The list is meant to be reused: clear() keeps the array, so once it has grown to the largest batch a
+// bot or replay loop allocates nothing.
+public class CellDiff {
+	// Largest board whose cell indices fit in an entry
+	static final int MAX_CELLS = 1 << 24;
+
+	private int[] entries;
+	private int size;
+	private Board.Outcome outcome = Board.Outcome.IGNORED;
+	private int appliedMoves;
+
+	public CellDiff() {
+		this(64);
+	}
+
+	public CellDiff(int capacity) {
+		entries = new int[Math.max(1, capacity)];
+	}
+
+	// Number of changes
+	public int size() {
+		return size;
+	}
+
+	// The i-th change, packed as described above
+	public int entry(int i) {
+		return entries[i];
+	}
+
+	public int index(int i) {
+		return entries[i] >>> 8;
+	}
+
+	public int state(int i) {
+		return entries[i] & 0xFF;
+	}
+
+	public int adjacentWorms(int i) {
+		return entries[i] & Board.ADJ_MASK;
+	}
+
+	public boolean hasWorm(int i) {
+		return (entries[i] & Board.WORM) != 0;
+	}
+
+	public boolean isRevealed(int i) {
+		return (entries[i] & Board.REVEALED) != 0;
+	}
+
+	public boolean isFlagged(int i) {
+		return (entries[i] & Board.FLAGGED) != 0;
+	}
+
+	// How the batch ended: WORM or WON if it ended the game, SAFE if it changed any cell, else IGNORED
+	public Board.Outcome getOutcome() {
+		return outcome;
+	}
+
+	// Number of moves of the batch that were applied (moves after the end of the game are not)
+	public int getAppliedMoves() {
+		return appliedMoves;
+	}
+
+	void clear() {
+		size = 0;
+		outcome = Board.Outcome.IGNORED;
+		appliedMoves = 0;
+	}
+
+	void add(int index, byte cell) {
+		if (size == entries.length) {
+			entries = Arrays.copyOf(entries, size * 2);
+		}
+		int visible = (cell & Board.REVEALED) != 0 ? cell & 0xFF : cell & Board.FLAGGED;
+		entries[size++] = index << 8 | visible;
+	}
+
+	void finish(Board.Outcome outcome, int appliedMoves) {
+		this.outcome = outcome;
+		this.appliedMoves = appliedMoves;
+	}
+}
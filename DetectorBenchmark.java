@@ -0,0 +1,74 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.bytedeco.javacv.Frame;
+
+// Headless benchmark of the red detection pipeline: pushes frames from a FrameSource through
+// FramePipeline as fast as possible and reports frames per second and per-frame latency percentiles.
+// The latencies cover the whole pipeline (red detection and the copy for the picture); "detector only"
+// counts just the red detection. Grabbing is not timed, so with recorded or synthetic frames the
+// frames per second are those of the pipeline.
+//
+// Usage: java DetectorBenchmark [source] [frames] [width] [height]
+// source is a directory of images, a video file, "synthetic" (default) or a camera number (see FrameSource.open).
+public class DetectorBenchmark {
+	static final int DEFAULT_FRAMES = 3000;
+	// Frames processed before measuring, so the JIT and OpenCV's buffers are warmed up
+	static final int WARMUP_FRAMES = 100;
+
+	public static void main(String[] args) throws Exception {
+		String description = args.length > 0 ? args[0] : "synthetic";
+		int frames = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FRAMES;
+		int width = args.length > 2 ? Integer.parseInt(args[2]) : 160;
+		int height = args.length > 3 ? Integer.parseInt(args[3]) : 120;
+
+		long[] latencies = new long[frames];
+		int measured = 0;
+		int redFrames = 0;
+		long start = 0;
+		long elapsed = 0;
+		long detecting = 0;
+		try (FrameSource source = FrameSource.open(description, width, height);
+				FramePipeline pipeline = new FramePipeline()) {
+			source.start();
+			for (int i = 0; i < WARMUP_FRAMES + frames; i++) {
+				Frame frame = source.grab();
+				if (frame == null) {
+					break;
+				}
+				if (i == WARMUP_FRAMES) {
+					start = System.nanoTime();
+				}
+				long before = System.nanoTime();
+				boolean red = pipeline.process(frame);
+				long after = System.nanoTime();
+				if (i >= WARMUP_FRAMES) {
+					latencies[measured++] = after - before;
+					detecting += pipeline.getLastDetectNanos();
+					redFrames += red ? 1 : 0;
+				}
+			}
+			// before closing the source and the pipeline, which is not part of the measurement
+			elapsed = System.nanoTime() - start;
+		}
+		if (measured == 0) {
+			System.out.println("No frames measured (the source has fewer than " + WARMUP_FRAMES + " frames?)");
+			return;
+		}
+
+		latencies = Arrays.copyOf(latencies, measured);
+		Arrays.sort(latencies);
+		System.out.println("Source " + description + ": " + measured + " frames, " + redFrames + " with red");
+		System.out.println(String.format(Locale.ROOT, "  %.1f frames/s (detector only: %.1f frames/s)",
+				measured / (elapsed / 1e9), measured / (detecting / 1e9)));
+		System.out.println(String.format(Locale.ROOT, "  pipeline latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+				percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+				latencies[measured - 1] / 1e6));
+	}
+
+	// Latency (in milliseconds) below which the given fraction of the sorted latencies lies
+	private static double percentile(long[] sorted, double fraction) {
+		int index = (int) Math.ceil(sorted.length * fraction) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+	}
+}
@@ -0,0 +1,368 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Endless board: an unbounded field split into CHUNK_SIZE x CHUNK_SIZE chunks.
+// A chunk is generated the first time it is touched: whether a cell has a worm is a pure function of
+// the seed and the cell coordinates, so chunks (and their adjacency counts across chunk borders) can be
+// built in any order and always come out the same.
+// Only a bounded number of chunks is kept on the heap. When a chunk is evicted it is dropped if the
+// player never changed it (it can be generated again), otherwise it is written to a memory-mapped
+// spill file and read back when it is touched again. Heap use is bounded by maxResidentChunks,
+// and the spill file by the explored area.
+// Cells use the same packed byte layout as Board.
+//
+// Usage: java EndlessField [seed] [density] [resident chunks] [length in chunks]
+// Plays a corridor five cells high from the origin to the east, revealing the safe cells and hooking
+// the worms, then walks back and checks that every cell kept its state through eviction and the spill
+// file; prints the chunks on the heap and spilled, and the time taken.
+public class EndlessField implements AutoCloseable {
+	// Chunks are CHUNK_SIZE x CHUNK_SIZE cells, one byte per cell
+	static final int CHUNK_SHIFT = 6;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	static final int CHUNK_BYTES = CHUNK_SIZE * CHUNK_SIZE;
+	// Below this density zero cells come close to percolating and a single click could open an endless area
+	static final double MIN_DENSITY = 0.12;
+	static final double MAX_DENSITY = 0.5;
+
+	private final long seed;
+	// A cell has a worm if its hash is below this threshold
+	private final long wormThreshold;
+	private final int maxResidentChunks;
+	// Resident chunks by chunk key, least recently used first
+	private final LinkedHashMap<Long, Chunk> resident = new LinkedHashMap<>(16, 0.75f, true);
+	// Evicted chunks with player changes
+	private final SpillFile spill;
+
+	// Cells revealed by the last reveal(), as packed coordinates (see key()); also the flood fill queue
+	private long[] revealedCells = new long[256];
+	private int revealedCount;
+	private boolean finished;
+
+	// A generated chunk
+	private static final class Chunk {
+		final byte[] cells = new byte[CHUNK_BYTES];
+		// set once the player reveals or hooks a cell, so the chunk can't simply be generated again
+		boolean modified;
+	}
+
+	public EndlessField(long seed, double density, int maxResidentChunks) throws IOException {
+		if (density < MIN_DENSITY || density > MAX_DENSITY) {
+			throw new IllegalArgumentException("Worm density must be between " + MIN_DENSITY + " and " + MAX_DENSITY);
+		}
+		if (maxResidentChunks < 9) {
+			// a cell and its 3x3 vicinity can touch up to 4 chunks, keep some headroom for a cascade front
+			throw new IllegalArgumentException("At least 9 chunks have to stay resident");
+		}
+		this.seed = seed;
+		this.wormThreshold = (long) (density * (1L << 53));
+		this.maxResidentChunks = maxResidentChunks;
+		this.spill = new SpillFile();
+	}
+
+	// Reveal a cell; cells without adjacent worms also reveal their neighbours
+	public Board.Outcome reveal(long row, long col) {
+		revealedCount = 0;
+		int cell = cell(row, col);
+		if (finished || (cell & (Board.REVEALED | Board.FLAGGED)) != 0) {
+			return Board.Outcome.IGNORED;
+		}
+		markRevealed(row, col);
+		// a worm ends the game, there is no winning an endless field
+		if ((cell & Board.WORM) != 0) {
+			finished = true;
+			return Board.Outcome.WORM;
+		}
+		// flood fill the opening with revealedCells as the queue
+		for (int head = 0; head < revealedCount; head++) {
+			long key = revealedCells[head];
+			long r = row(key);
+			long c = col(key);
+			if ((cell(r, c) & Board.ADJ_MASK) != 0) {
+				continue;
+			}
+			for (long nr = r - 1; nr <= r + 1; nr++) {
+				for (long nc = c - 1; nc <= c + 1; nc++) {
+					if ((cell(nr, nc) & (Board.REVEALED | Board.FLAGGED | Board.WORM)) == 0) {
+						markRevealed(nr, nc);
+					}
+				}
+			}
+		}
+		return Board.Outcome.SAFE;
+	}
+
+	// Place a hook on an unrevealed cell; hooks are unlimited on an endless field
+	public boolean flag(long row, long col) {
+		Chunk chunk = chunk(row, col);
+		int local = local(row, col);
+		if (finished || (chunk.cells[local] & (Board.REVEALED | Board.FLAGGED)) != 0) {
+			return false;
+		}
+		chunk.cells[local] |= Board.FLAGGED;
+		chunk.modified = true;
+		return true;
+	}
+
+	// Remove a hook from a cell; returns false if the cell had no hook
+	public boolean unflag(long row, long col) {
+		Chunk chunk = chunk(row, col);
+		int local = local(row, col);
+		if (finished || (chunk.cells[local] & Board.FLAGGED) == 0) {
+			return false;
+		}
+		chunk.cells[local] &= ~Board.FLAGGED;
+		chunk.modified = true;
+		return true;
+	}
+
+	// Packed state of a cell (Board bit layout), generating its chunk if needed
+	public int cell(long row, long col) {
+		return chunk(row, col).cells[local(row, col)];
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	// Number of cells revealed by the last reveal()
+	public int getRevealedCount() {
+		return revealedCount;
+	}
+
+	// Row and column of the i-th cell revealed by the last reveal()
+	public long getRevealedRow(int i) {
+		return row(revealedCells[i]);
+	}
+
+	public long getRevealedCol(int i) {
+		return col(revealedCells[i]);
+	}
+
+	// Chunks currently on the heap and in the spill file
+	public int residentChunks() {
+		return resident.size();
+	}
+
+	public int spilledChunks() {
+		return spill.size();
+	}
+
+	public static void main(String[] args) throws IOException {
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+		double density = args.length > 1 ? Double.parseDouble(args[1]) : 0.15;
+		int maxResident = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+		long length = (args.length > 3 ? Long.parseLong(args[3]) : 1000) * CHUNK_SIZE;
+
+		long start = System.nanoTime();
+		long revealed = 0;
+		long hooked = 0;
+		try (EndlessField field = new EndlessField(seed, density, maxResident)) {
+			// the player knows where the worms are, only the chunk storage is exercised
+			for (long col = 0; col < length; col++) {
+				for (long row = -2; row <= 2; row++) {
+					int cell = field.cell(row, col);
+					if ((cell & (Board.REVEALED | Board.FLAGGED)) != 0) {
+						continue;
+					}
+					if ((cell & Board.WORM) != 0) {
+						field.flag(row, col);
+						hooked++;
+					} else {
+						field.reveal(row, col);
+						revealed += field.getRevealedCount();
+					}
+				}
+			}
+			long played = System.nanoTime();
+			System.out.println("Played " + length + " columns: " + revealed + " cells revealed, " + hooked + " hooked in "
+					+ (played - start) / 1_000_000 + " ms");
+			System.out.println("  " + field.residentChunks() + " chunks on the heap ("
+					+ field.residentChunks() * CHUNK_BYTES / 1024 + " KB), " + field.spilledChunks() + " spilled ("
+					+ (long) field.spilledChunks() * CHUNK_BYTES / 1024 + " KB)");
+			// every corridor cell must come back revealed or hooked, most of them from the spill file
+			for (long col = length - 1; col >= 0; col--) {
+				for (long row = -2; row <= 2; row++) {
+					if ((field.cell(row, col) & (Board.REVEALED | Board.FLAGGED)) == 0) {
+						throw new IllegalStateException("cell " + row + ", " + col + " lost its state");
+					}
+				}
+			}
+			System.out.println("Checked the corridor back to the origin in " + (System.nanoTime() - played) / 1_000_000
+					+ " ms: every cell kept its state");
+		}
+	}
+
+	// Delete the spill file
+	@Override public void close() throws IOException {
+		resident.clear();
+		spill.close();
+	}
+
+	private void markRevealed(long row, long col) {
+		Chunk chunk = chunk(row, col);
+		chunk.cells[local(row, col)] |= Board.REVEALED;
+		chunk.modified = true;
+		if (revealedCount == revealedCells.length) {
+			revealedCells = Arrays.copyOf(revealedCells, revealedCount * 2);
+		}
+		revealedCells[revealedCount++] = key(row, col);
+	}
+
+	// Find the chunk of a cell: resident, spilled or generated
+	private Chunk chunk(long row, long col) {
+		long key = key(row >> CHUNK_SHIFT, col >> CHUNK_SHIFT);
+		Chunk chunk = resident.get(key);
+		if (chunk == null) {
+			chunk = new Chunk();
+			if (spill.read(key, chunk.cells)) {
+				chunk.modified = true;
+			} else {
+				generate(row >> CHUNK_SHIFT, col >> CHUNK_SHIFT, chunk.cells);
+			}
+			resident.put(key, chunk);
+			evict();
+		}
+		return chunk;
+	}
+
+	// Drop the least recently used chunks, keeping the ones the player changed in the spill file
+	private void evict() {
+		Iterator<Map.Entry<Long, Chunk>> it = resident.entrySet().iterator();
+		while (resident.size() > maxResidentChunks && it.hasNext()) {
+			Map.Entry<Long, Chunk> eldest = it.next();
+			if (eldest.getValue().modified) {
+				spill.write(eldest.getKey(), eldest.getValue().cells);
+			}
+			it.remove();
+		}
+	}
+
+	// Fill in the worms and adjacency counts of a chunk
+	private void generate(long chunkRow, long chunkCol, byte[] cells) {
+		long firstRow = chunkRow << CHUNK_SHIFT;
+		long firstCol = chunkCol << CHUNK_SHIFT;
+		for (int r = 0; r < CHUNK_SIZE; r++) {
+			for (int c = 0; c < CHUNK_SIZE; c++) {
+				long row = firstRow + r;
+				long col = firstCol + c;
+				int adjacent = 0;
+				for (long nr = row - 1; nr <= row + 1; nr++) {
+					for (long nc = col - 1; nc <= col + 1; nc++) {
+						if ((nr != row || nc != col) && hasWorm(nr, nc)) {
+							adjacent++;
+						}
+					}
+				}
+				cells[(r << CHUNK_SHIFT) | c] = (byte) (adjacent | (hasWorm(row, col) ? Board.WORM : 0));
+			}
+		}
+	}
+
+	// Whether a cell has a worm; the 3x3 cells around the origin are always safe so the first click opens an area
+	private boolean hasWorm(long row, long col) {
+		if (row >= -1 && row <= 1 && col >= -1 && col <= 1) {
+			return false;
+		}
+		return (mix(seed ^ mix(row * 0x9E3779B97F4A7C15L + col)) >>> 11) < wormThreshold;
+	}
+
+	// SplitMix64 finalizer
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	// Pack a row/column pair (each within the int range) into one long
+	private static long key(long row, long col) {
+		return (row << 32) | (col & 0xFFFFFFFFL);
+	}
+
+	private static long row(long key) {
+		return key >> 32;
+	}
+
+	private static long col(long key) {
+		return (int) key;
+	}
+
+	// Index of a cell inside its chunk
+	private static int local(long row, long col) {
+		return (int) (((row & CHUNK_MASK) << CHUNK_SHIFT) | (col & CHUNK_MASK));
+	}
+
+	// Memory-mapped file holding evicted chunks, mapped in blocks of SLOTS_PER_BLOCK chunk slots
+	private static final class SpillFile {
+		static final int SLOTS_PER_BLOCK = 256;
+		static final long BLOCK_BYTES = (long) SLOTS_PER_BLOCK * CHUNK_BYTES;
+
+		private final Path path;
+		private final FileChannel channel;
+		private final List<MappedByteBuffer> blocks = new ArrayList<>();
+		// slot of every chunk that was ever spilled, a chunk keeps its slot when it is spilled again
+		private final Map<Long, Integer> slots = new HashMap<>();
+
+		SpillFile() throws IOException {
+			path = Files.createTempFile("wormsweeper-chunks", ".bin");
+			channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+		}
+
+		int size() {
+			return slots.size();
+		}
+
+		// Copy a chunk into its slot, mapping a new block when the file is full
+		void write(long key, byte[] cells) {
+			Integer slot = slots.get(key);
+			if (slot == null) {
+				slot = slots.size();
+				slots.put(key, slot);
+			}
+			buffer(slot).put(offset(slot), cells);
+		}
+
+		// Copy a spilled chunk back; returns false if the chunk was never spilled
+		boolean read(long key, byte[] cells) {
+			Integer slot = slots.get(key);
+			if (slot == null) {
+				return false;
+			}
+			buffer(slot).get(offset(slot), cells);
+			return true;
+		}
+
+		private MappedByteBuffer buffer(int slot) {
+			int block = slot / SLOTS_PER_BLOCK;
+			while (blocks.size() <= block) {
+				try {
+					blocks.add(channel.map(FileChannel.MapMode.READ_WRITE, blocks.size() * BLOCK_BYTES, BLOCK_BYTES));
+				} catch (IOException e) {
+					throw new IllegalStateException("Failed to grow chunk spill file " + path, e);
+				}
+			}
+			return blocks.get(block);
+		}
+
+		private static int offset(int slot) {
+			return (slot % SLOTS_PER_BLOCK) * CHUNK_BYTES;
+		}
+
+		void close() throws IOException {
+			blocks.clear();
+			channel.close();
+		}
+	}
+}
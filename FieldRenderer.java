@@ -0,0 +1,10 @@
+// Draws the playing field from the board. After every move the game passes the cells the move changed
+// (see Board.applyMoves()), so the cost of a move depends on what it changed, not on the board size;
+// showBoard() draws everything, for a new or resumed game and whenever changes weren't followed.
+public interface FieldRenderer {
+	// Show a board from scratch
+	void showBoard(Board board);
+
+	// Show the cells a move changed (the board already has their new state)
+	void showChanges(Board board, CellDiff changes);
+}
@@ -0,0 +1,25 @@
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+// The picture of the latest camera frame in the hint dialog. Kept apart from FramePipeline so the
+// detection path (and DetectorBenchmark) runs without JavaFX. The image is reused while the frame
+// size stays the same, only its pixels change.
+public class FrameImage {
+	private WritableImage image;
+	// Created once, a method reference allocates on every use
+	private final FramePipeline.PixelsConsumer writer = this::write;
+
+	// Copy the latest frame of a pipeline into the image and return it; JavaFX application thread only
+	public Image update(FramePipeline pipeline) {
+		pipeline.withPixels(writer);
+		return image;
+	}
+
+	private void write(byte[] pixels, int width, int height) {
+		if (image == null || (int) image.getWidth() != width || (int) image.getHeight() != height) {
+			image = new WritableImage(width, height);
+		}
+		image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getByteBgraPreInstance(), pixels, 0, width * 4);
+	}
+}
@@ -0,0 +1,91 @@
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+// Turns camera frames into a red detection (see RedDetector) and the pixels of a picture for the hint
+// dialog (shown by FrameImage; this class doesn't use JavaFX, so it also runs on headless machines).
+// Every buffer and converter is created once per camera session and reused for every frame:
+// OpenCV only reallocates a Mat when the frame size changes, so a steady stream of frames allocates
+// no native memory. close() releases the native memory as soon as the camera stops instead of
+// leaving it to the garbage collector.
+public class FramePipeline implements AutoCloseable {
+	// Receives the pixels of the latest frame (BGRA, width * 4 bytes per row)
+	public interface PixelsConsumer {
+		void accept(byte[] pixels, int width, int height);
+	}
+
+	// Wraps the grabbed frame without copying it
+	private final OpenCVFrameConverter.ToMat matConverter = new OpenCVFrameConverter.ToMat();
+	private final RedDetector detector = new RedDetector();
+	private final Mat bgra = new Mat();
+
+	// Pixels of the latest frame (BGRA), reused while the size stays the same
+	private byte[] pixels = new byte[0];
+	private int width;
+	private int height;
+	private boolean closed;
+	// Stage times of the last processed frame
+	private long lastDetectNanos;
+	private long lastConvertNanos;
+
+	// Look for red in a frame and keep its pixels for the next image update; camera thread.
+	// Returns whether red is detected, always false once the pipeline is closed.
+	public synchronized boolean process(Frame frame) {
+		if (closed) {
+			return false;
+		}
+		long start = System.nanoTime();
+		Mat bgr = matConverter.convert(frame);
+		boolean red = detector.detect(bgr);
+		long detected = System.nanoTime();
+		lastDetectNanos = detected - start;
+		Metrics.DETECT_NANOS.record(lastDetectNanos);
+
+		// keep a copy of the frame in the pixel format of the image
+		opencv_imgproc.cvtColor(bgr, bgra, opencv_imgproc.COLOR_BGR2BGRA);
+		width = bgra.cols();
+		height = bgra.rows();
+		if (pixels.length != width * height * 4) {
+			pixels = new byte[width * height * 4];
+		}
+		bgra.data().get(pixels, 0, pixels.length);
+		lastConvertNanos = System.nanoTime() - detected;
+		Metrics.CONVERT_NANOS.record(lastConvertNanos);
+		return red;
+	}
+
+	// Time the last frame took to search for red and to convert for the picture
+	public synchronized long getLastDetectNanos() {
+		return lastDetectNanos;
+	}
+
+	public synchronized long getLastConvertNanos() {
+		return lastConvertNanos;
+	}
+
+	// Red pixels in the last frame (see RedDetector.getLastArea())
+	public synchronized int getLastRedArea() {
+		return detector.getLastArea();
+	}
+
+	// Hand the pixels of the latest frame to a consumer, which must copy them before returning (the camera
+	// thread waits meanwhile and then overwrites them); nothing happens before the first frame
+	public synchronized void withPixels(PixelsConsumer consumer) {
+		if (width == 0 || height == 0) {
+			return;
+		}
+		consumer.accept(pixels, width, height);
+	}
+
+	// Release the native buffers; frames processed after this are ignored
+	@Override public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		matConverter.close();
+		detector.close();
+		bgra.close();
+	}
+}
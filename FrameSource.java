@@ -0,0 +1,35 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import org.bytedeco.javacv.Frame;
+
+// Where camera frames come from: the webcam, recorded frames or generated test frames.
+// The hint dialog and DetectorBenchmark only see this interface, so red detection can be run and
+// measured on a machine without a webcam.
+public interface FrameSource extends AutoCloseable {
+	// Open the source; frames can be grabbed after this
+	void start() throws Exception;
+
+	// The next frame, or null if there is none right now. The frame (and its buffers) may be reused
+	// by the next call, so it has to be processed before grabbing again.
+	Frame grab() throws Exception;
+
+	// Stop the source and release its resources
+	@Override void close() throws IOException;
+
+	// Open a source from a description:
+	//   a camera number ("0" is the built-in webcam, also used when the description is empty),
+	//   "synthetic" for generated frames, or the path of a directory of images or a video file
+	static FrameSource open(String description, int width, int height) {
+		if (description == null || description.isEmpty()) {
+			return new CameraFrameSource(0, width, height);
+		}
+		if (description.equalsIgnoreCase("synthetic")) {
+			return new SyntheticFrameSource(width, height, 1);
+		}
+		if (description.chars().allMatch(Character::isDigit)) {
+			return new CameraFrameSource(Integer.parseInt(description), width, height);
+		}
+		return new ReplayFrameSource(Paths.get(description), true);
+	}
+}
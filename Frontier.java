@@ -0,0 +1,292 @@
+import java.util.Arrays;
+
+// Hidden cells next to revealed counts that logic could not decide (the frontier), grouped by shared counts,
+// with the worm probability of every frontier cell.
+// Groups are enumerated exactly: every worm layout that fits the counts is counted, weighted by the
+// number of ways to place the remaining worms on the unknown cells away from the frontier.
+public class Frontier {
+	// Connected frontier groups up to this many cells are enumerated exactly, larger ones are estimated
+	static final int MAX_EXACT_CELLS = 30;
+	// Search budget for one group before falling back to the estimate
+	static final long MAX_SEARCH_NODES = 2_000_000;
+
+	final Board board;
+	// frontier cells and their position in the frontier by board index (-1 if not on the frontier)
+	final int[] cells;
+	final int[] frontierIndex;
+	int cellCount;
+	// constraints of every frontier cell
+	final int[][] cellConstraints;
+	final int[] cellConstraintCount;
+	// constraints: frontier cells around a count and how many worms they hold
+	int[][] constraintCells = new int[16][];
+	int[] constraintSizes = new int[16];
+	int[] constraintNeeds = new int[16];
+	int constraintCount;
+	// worms and cells outside the frontier whose state is unknown
+	final int wormsLeft;
+	final int otherCells;
+	final double[] probability;
+
+	Frontier(Board board, Solver solver) {
+		this.board = board;
+		int size = board.size();
+		frontierIndex = new int[size];
+		Arrays.fill(frontierIndex, -1);
+		int[] found = new int[64];
+		int knownWorms = 0;
+		int unknown = 0;
+		for (int index = 0; index < size; index++) {
+			byte state = solver.knownState(index);
+			if (state == Solver.WORM) {
+				knownWorms++;
+			} else if (state == Solver.UNKNOWN) {
+				unknown++;
+			}
+			if (!board.isRevealed(index) || board.hasWorm(index) || board.adjacentWorms(index) == 0) {
+				continue;
+			}
+			// collect the constraint of this revealed count
+			int row = index / board.cols;
+			int col = index % board.cols;
+			int need = board.adjacentWorms(index);
+			int[] around = new int[8];
+			int count = 0;
+			for (int r = Math.max(0, row - 1); r <= Math.min(board.rows - 1, row + 1); r++) {
+				for (int c = Math.max(0, col - 1); c <= Math.min(board.cols - 1, col + 1); c++) {
+					int next = r * board.cols + c;
+					byte nextState = solver.knownState(next);
+					if (nextState == Solver.WORM) {
+						need--;
+					} else if (nextState == Solver.UNKNOWN) {
+						around[count++] = next;
+						if (frontierIndex[next] < 0) {
+							if (cellCount == found.length) {
+								found = Arrays.copyOf(found, cellCount * 2);
+							}
+							frontierIndex[next] = cellCount;
+							found[cellCount++] = next;
+						}
+					}
+				}
+			}
+			if (count > 0) {
+				addConstraint(Arrays.copyOf(around, count), need);
+			}
+		}
+		cells = found;
+		wormsLeft = board.wormsTotal - knownWorms;
+		otherCells = unknown - cellCount;
+		probability = new double[cellCount];
+		cellConstraints = new int[cellCount][8];
+		cellConstraintCount = new int[cellCount];
+		for (int k = 0; k < constraintCount; k++) {
+			for (int cell : constraintCells[k]) {
+				int f = frontierIndex[cell];
+				cellConstraints[f][cellConstraintCount[f]++] = k;
+			}
+		}
+	}
+
+	// Worm probability of an unknown cell away from the frontier: the worms the frontier is not
+	// expected to hold, spread over the other cells. Call after computeProbabilities().
+	double otherProbability() {
+		if (otherCells == 0) {
+			return 1;
+		}
+		double frontierWorms = 0;
+		for (int f = 0; f < cellCount; f++) {
+			frontierWorms += probability[f];
+		}
+		return Math.min(1, Math.max(0, (wormsLeft - frontierWorms) / otherCells));
+	}
+
+	private void addConstraint(int[] around, int need) {
+		if (constraintCount == constraintSizes.length) {
+			constraintCells = Arrays.copyOf(constraintCells, constraintCount * 2);
+			constraintSizes = Arrays.copyOf(constraintSizes, constraintCount * 2);
+			constraintNeeds = Arrays.copyOf(constraintNeeds, constraintCount * 2);
+		}
+		constraintCells[constraintCount] = around;
+		constraintSizes[constraintCount] = around.length;
+		constraintNeeds[constraintCount] = need;
+		constraintCount++;
+	}
+
+	// Worm probability of every frontier cell, group by group
+	void computeProbabilities() throws InterruptedException {
+		boolean[] done = new boolean[cellCount];
+		int[] group = new int[cellCount];
+		for (int start = 0; start < cellCount; start++) {
+			if (done[start]) {
+				continue;
+			}
+			// breadth first walk over shared constraints, so neighbouring cells are assigned one after another
+			int groupSize = 0;
+			group[groupSize++] = start;
+			done[start] = true;
+			for (int head = 0; head < groupSize; head++) {
+				int f = group[head];
+				for (int k = 0; k < cellConstraintCount[f]; k++) {
+					for (int cell : constraintCells[cellConstraints[f][k]]) {
+						int other = frontierIndex[cell];
+						if (!done[other]) {
+							done[other] = true;
+							group[groupSize++] = other;
+						}
+					}
+				}
+			}
+			int[] members = Arrays.copyOf(group, groupSize);
+			if (groupSize > MAX_EXACT_CELLS || !enumerate(members)) {
+				estimate(members);
+			}
+		}
+	}
+
+	// Exact probabilities: count the layouts of the group by number of worms, weighted by the number
+	// of ways to place the remaining worms on the cells outside the frontier. Returns false if the
+	// search budget runs out.
+	private boolean enumerate(int[] members) throws InterruptedException {
+		Search search = new Search(members);
+		if (!search.run(0)) {
+			return false;
+		}
+		int n = members.length;
+		// log of C(otherCells, wormsLeft - k) relative to k = 0
+		double[] logWeight = new double[n + 1];
+		double maxLog = Double.NEGATIVE_INFINITY;
+		for (int k = 0; k <= n; k++) {
+			int rest = wormsLeft - k;
+			if (rest < 0 || rest > otherCells || search.layouts[k] == 0) {
+				logWeight[k] = Double.NEGATIVE_INFINITY;
+				continue;
+			}
+			double log = 0;
+			for (int i = 0; i < k; i++) {
+				log += Math.log(wormsLeft - i) - Math.log(otherCells - wormsLeft + i + 1);
+			}
+			logWeight[k] = log;
+			maxLog = Math.max(maxLog, log);
+		}
+		if (maxLog == Double.NEGATIVE_INFINITY) {
+			return false;
+		}
+		double total = 0;
+		double[] wormWeight = new double[n];
+		for (int k = 0; k <= n; k++) {
+			if (logWeight[k] == Double.NEGATIVE_INFINITY) {
+				continue;
+			}
+			double weight = Math.exp(logWeight[k] - maxLog);
+			total += weight * search.layouts[k];
+			for (int m = 0; m < n; m++) {
+				wormWeight[m] += weight * search.wormLayouts[k][m];
+			}
+		}
+		for (int m = 0; m < n; m++) {
+			probability[members[m]] = wormWeight[m] / total;
+		}
+		return true;
+	}
+
+	// Estimated probabilities for groups too large to enumerate: the average worm density of the counts around a cell
+	private void estimate(int[] members) {
+		for (int f : members) {
+			double sum = 0;
+			for (int k = 0; k < cellConstraintCount[f]; k++) {
+				int constraint = cellConstraints[f][k];
+				sum += (double) constraintNeeds[constraint] / constraintSizes[constraint];
+			}
+			probability[f] = sum / cellConstraintCount[f];
+		}
+	}
+
+	// Backtracking search over the worm layouts of one group
+	private final class Search {
+		final int[] members;
+		final boolean[] worm;
+		// worms placed and cells still open for every constraint
+		final int[] placed = new int[constraintCount];
+		final int[] open = new int[constraintCount];
+		// layouts[k]: layouts with k worms; wormLayouts[k][m]: those with a worm on member m
+		final double[] layouts;
+		final double[][] wormLayouts;
+		long nodes;
+
+		Search(int[] members) {
+			this.members = members;
+			this.worm = new boolean[members.length];
+			this.layouts = new double[members.length + 1];
+			this.wormLayouts = new double[members.length + 1][members.length];
+			for (int f : members) {
+				for (int k = 0; k < cellConstraintCount[f]; k++) {
+					open[cellConstraints[f][k]]++;
+				}
+			}
+		}
+
+		// Assign member m and everything after it; returns false if the budget ran out
+		boolean run(int m) throws InterruptedException {
+			if (++nodes > MAX_SEARCH_NODES) {
+				return false;
+			}
+			if ((nodes & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+				throw new InterruptedException();
+			}
+			if (m == members.length) {
+				int worms = 0;
+				for (boolean w : worm) {
+					worms += w ? 1 : 0;
+				}
+				layouts[worms]++;
+				for (int i = 0; i < members.length; i++) {
+					if (worm[i]) {
+						wormLayouts[worms][i]++;
+					}
+				}
+				return true;
+			}
+			for (int value = 0; value <= 1; value++) {
+				if (assign(m, value == 1)) {
+					worm[m] = value == 1;
+					if (!run(m + 1)) {
+						return false;
+					}
+				}
+				unassign(m, value == 1);
+			}
+			worm[m] = false;
+			return true;
+		}
+
+		// Assign a member and check its constraints can still be met
+		private boolean assign(int m, boolean isWorm) {
+			int f = members[m];
+			boolean ok = true;
+			for (int k = 0; k < cellConstraintCount[f]; k++) {
+				int constraint = cellConstraints[f][k];
+				open[constraint]--;
+				if (isWorm) {
+					placed[constraint]++;
+				}
+				int need = constraintNeeds[constraint];
+				if (placed[constraint] > need || placed[constraint] + open[constraint] < need) {
+					ok = false;
+				}
+			}
+			return ok;
+		}
+
+		private void unassign(int m, boolean isWorm) {
+			int f = members[m];
+			for (int k = 0; k < cellConstraintCount[f]; k++) {
+				int constraint = cellConstraints[f][k];
+				open[constraint]++;
+				if (isWorm) {
+					placed[constraint]--;
+				}
+			}
+		}
+	}
+}
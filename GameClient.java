@@ -0,0 +1,182 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test for the GameServer: many clients, each on its own connection, play games by revealing
+// random hidden cells until they hit a worm or win, and the games and moves per second are printed.
+// "check" instead hooks and unhooks every cell of a game in one BATCH and verifies that the answer
+// tells nothing about the hidden cells (no worm or adjacent worm bits).
+//
+// Usage: java GameClient [port] [clients] [games per client] [rows] [cols] [worms]
+//        java GameClient check [port]
+public class GameClient implements AutoCloseable {
+	private final Socket socket;
+	private final DataInputStream in;
+	private final DataOutputStream out;
+
+	public GameClient(int port) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+
+	// Start a game; returns its session id
+	public long newGame(int rows, int cols, int worms, long seed, int safeIndex) throws IOException {
+		out.writeByte(GameServer.NEW);
+		out.writeInt(rows);
+		out.writeInt(cols);
+		out.writeInt(worms);
+		out.writeLong(seed);
+		out.writeInt(safeIndex);
+		out.flush();
+		status();
+		return in.readLong();
+	}
+
+	// Reveal a cell; the revealed cells are marked in revealed, the outcome is returned
+	public Board.Outcome reveal(long session, int index, boolean[] revealed) throws IOException {
+		out.writeByte(GameServer.REVEAL);
+		out.writeLong(session);
+		out.writeInt(index);
+		out.flush();
+		status();
+		Board.Outcome outcome = Board.Outcome.values()[in.readByte()];
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			revealed[in.readInt()] = true;
+			in.readByte();
+		}
+		return outcome;
+	}
+
+	// Apply a batch of moves (see Board.move()); the changes are put in diff, the outcome is returned
+	public Board.Outcome batch(long session, int[] moves, CellDiff diff) throws IOException {
+		out.writeByte(GameServer.BATCH);
+		out.writeLong(session);
+		out.writeInt(moves.length);
+		for (int move : moves) {
+			out.writeInt(move);
+		}
+		out.flush();
+		status();
+		Board.Outcome outcome = Board.Outcome.values()[in.readByte()];
+		int applied = in.readInt();
+		int count = in.readInt();
+		diff.clear();
+		for (int i = 0; i < count; i++) {
+			int entry = in.readInt();
+			diff.add(entry >>> 8, (byte) entry);
+		}
+		diff.finish(outcome, applied);
+		return outcome;
+	}
+
+	public void closeGame(long session) throws IOException {
+		out.writeByte(GameServer.CLOSE);
+		out.writeLong(session);
+		out.flush();
+		status();
+	}
+
+	@Override public void close() throws IOException {
+		socket.close();
+	}
+
+	private void status() throws IOException {
+		byte status = in.readByte();
+		if (status != GameServer.OK) {
+			throw new IOException("request failed with status " + status);
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("check")) {
+			check(args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT);
+			return;
+		}
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : GameServer.DEFAULT_PORT;
+		int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		int games = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int rows = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+		int cols = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+		int worms = args.length > 5 ? Integer.parseInt(args[5]) : 40;
+
+		AtomicLong moves = new AtomicLong();
+		AtomicLong wins = new AtomicLong();
+		ExecutorService executor = GameServer.newThreadPerTaskExecutor("game-client");
+		long start = System.nanoTime();
+		List<Future<?>> results = new ArrayList<>();
+		for (int c = 0; c < clients; c++) {
+			long clientSeed = c;
+			results.add(executor.submit(() -> {
+				SplittableRandom random = new SplittableRandom(clientSeed);
+				try (GameClient client = new GameClient(port)) {
+					for (int g = 0; g < games; g++) {
+						int safeIndex = random.nextInt(rows * cols);
+						long session = client.newGame(rows, cols, worms, random.nextLong(), safeIndex);
+						boolean[] revealed = new boolean[rows * cols];
+						Board.Outcome outcome = client.reveal(session, safeIndex, revealed);
+						moves.incrementAndGet();
+						while (outcome == Board.Outcome.SAFE) {
+							int index = random.nextInt(rows * cols);
+							while (revealed[index]) {
+								index = (index + 1) % revealed.length;
+							}
+							outcome = client.reveal(session, index, revealed);
+							moves.incrementAndGet();
+						}
+						wins.addAndGet(outcome == Board.Outcome.WON ? 1 : 0);
+						client.closeGame(session);
+					}
+				}
+				return null;
+			}));
+		}
+		for (Future<?> result : results) {
+			result.get();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		executor.shutdown();
+		long totalGames = (long) clients * games;
+		System.out.println(clients + " clients played " + totalGames + " games (" + wins.get() + " won) in "
+				+ String.format("%.1f s: %.0f games/s, %.0f moves/s", seconds, totalGames / seconds, moves.get() / seconds));
+	}
+
+	// Hook and unhook every cell of a 10 x 10 game with 10 worms in one batch: each entry must be a
+	// hidden cell with at most its hook, whatever the cell holds
+	static void check(int port) throws IOException {
+		int cells = 100;
+		int[] moves = new int[cells * 2];
+		for (int index = 0; index < cells; index++) {
+			moves[index * 2] = Board.move(Board.FLAG_MOVE, index);
+			moves[index * 2 + 1] = Board.move(Board.UNFLAG_MOVE, index);
+		}
+		CellDiff diff = new CellDiff();
+		try (GameClient client = new GameClient(port)) {
+			long session = client.newGame(10, 10, 10, 1, -1);
+			client.batch(session, moves, diff);
+			client.closeGame(session);
+		}
+		if (diff.size() != moves.length) {
+			throw new IllegalStateException(diff.size() + " changes for " + moves.length + " hook moves");
+		}
+		for (int i = 0; i < diff.size(); i++) {
+			if (diff.isRevealed(i) || diff.hasWorm(i) || diff.adjacentWorms(i) != 0
+					|| diff.isFlagged(i) != (i % 2 == 0)) {
+				throw new IllegalStateException("cell " + diff.index(i) + " shows state " + diff.state(i));
+			}
+		}
+		System.out.println("OK: " + diff.size() + " hook changes show no worms or counts");
+	}
+}
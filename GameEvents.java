@@ -0,0 +1,92 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JDK Flight Recorder events of the game, to line up slow moves and camera frames with GC and safepoint
+// pauses in a recording. They are disabled unless a recording enables them (wormsweeper.jfc does):
+// a disabled event is never committed and the JIT removes it, so they cost nothing when not recording.
+// An event's duration is the time between begin() and commit().
+public final class GameEvents {
+	private GameEvents() {
+	}
+
+	@Name("wormsweeper.Reveal")
+	@Label("Reveal")
+	@Category("WormSweeper")
+	@Description("A cell revealed by a click, with the cells its opening revealed")
+	@StackTrace(false)
+	public static final class Reveal extends Event {
+		@Label("Cell")
+		int index;
+
+		@Label("Cells Revealed")
+		int cascadeSize;
+
+		@Label("Outcome")
+		String outcome;
+	}
+
+	@Name("wormsweeper.Reset")
+	@Label("New Game")
+	@Category("WormSweeper")
+	@Description("A new game started, including rebuilding the playing field")
+	@StackTrace(false)
+	public static final class Reset extends Event {
+		@Label("Level")
+		String level;
+
+		@Label("Rows")
+		int rows;
+
+		@Label("Columns")
+		int cols;
+
+		@Label("Worms")
+		int worms;
+	}
+
+	@Name("wormsweeper.Hint")
+	@Label("Hint Unlocked")
+	@Category("WormSweeper")
+	@Description("A hint unlocked by showing a red item, including waiting for the hint engine")
+	@StackTrace(false)
+	public static final class Hint extends Event {
+		@Label("Cell")
+		int index;
+
+		@Label("Worm")
+		@Description("Whether the hint showed a worm rather than revealing a safe cell")
+		boolean worm;
+	}
+
+	@Name("wormsweeper.CameraFrame")
+	@Label("Camera Frame")
+	@Category({ "WormSweeper", "Camera" })
+	@Description("A camera frame grabbed and searched for red")
+	@StackTrace(false)
+	public static final class CameraFrame extends Event {
+		@Label("Grab Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long grabNanos;
+
+		@Label("Detection Time")
+		@Timespan(Timespan.NANOSECONDS)
+		long detectNanos;
+
+		@Label("Conversion Time")
+		@Description("Time to copy the frame into the picture shown in the hint dialog")
+		@Timespan(Timespan.NANOSECONDS)
+		long convertNanos;
+
+		@Label("Red Pixels")
+		@Description("Pixels in the red hue range, in the scaled down frame the detector works on")
+		int redPixels;
+
+		@Label("Red Detected")
+		boolean red;
+	}
+}
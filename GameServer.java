@@ -0,0 +1,238 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Serves the game rules over TCP on the loopback interface, so bots and load tests can play many games
+// at once in one JVM. Every game is a session with its own Board (see SessionRegistry); a connection
+// can play any number of sessions and a session can be used from any connection.
+// Each connection is served by its own thread: a virtual thread when the JVM has them (Java 21+,
+// looked up by reflection so the game still builds and runs on older JDKs), otherwise a pooled thread.
+// Sessions nobody used for IDLE_TIMEOUT_SECONDS are evicted.
+//
+// Protocol (big-endian): a request is an opcode byte and its arguments, every request gets a response
+// starting with a status byte (OK, NO_SESSION, BAD_REQUEST); the rest is only sent with OK.
+//   NEW     rows, cols, worms (int), seed (long), safe cell (int, -1 for none)  -> session id (long)
+//   REVEAL  session (long), cell (int)   -> outcome (byte, Board.Outcome ordinal), revealed count (int),
+//                                           then per revealed cell: cell (int), adjacent worms (byte)
+//   FLAG    session (long), cell (int)   -> changed (byte 0/1), hooks left (int)
+//   UNFLAG  session (long), cell (int)   -> changed (byte 0/1), hooks left (int)
+//   BATCH   session (long), count (int), count moves (int, see Board.move(), no hints)
+//                                        -> outcome (byte), applied moves (int), changes (int),
+//                                           then per change: cell << 8 | cell state (int, see CellDiff)
+//   CLOSE   session (long)               -> nothing more
+// Requests can be pipelined: responses are flushed when no further request is waiting.
+//
+// Usage: java GameServer [port]
+public class GameServer {
+	static final int DEFAULT_PORT = 47100;
+	static final long IDLE_TIMEOUT_SECONDS = 300;
+	// Opcodes
+	static final byte NEW = 1;
+	static final byte REVEAL = 2;
+	static final byte FLAG = 3;
+	static final byte UNFLAG = 4;
+	static final byte CLOSE = 5;
+	static final byte BATCH = 6;
+	// Status codes
+	static final byte OK = 0;
+	static final byte NO_SESSION = 1;
+	static final byte BAD_REQUEST = 2;
+	// Largest board a client can ask for
+	static final int MAX_CELLS = 4_000_000;
+	// Most moves in one BATCH request
+	static final int MAX_BATCH = 65_536;
+
+	private final SessionRegistry sessions = new SessionRegistry();
+	private final ExecutorService connections = newThreadPerTaskExecutor("game-connection");
+
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		new GameServer().serve(port);
+	}
+
+	// Accept connections until the process ends
+	public void serve(int port) throws IOException {
+		ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "session-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		evictor.scheduleWithFixedDelay(() -> {
+			int evicted = sessions.evictIdle(TimeUnit.SECONDS.toNanos(IDLE_TIMEOUT_SECONDS));
+			if (evicted > 0) {
+				System.out.println("Evicted " + evicted + " idle sessions, " + sessions.size() + " left");
+			}
+		}, 1, 1, TimeUnit.SECONDS);
+		try (ServerSocket server = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress())) {
+			System.out.println("Game server listening on " + server.getLocalSocketAddress());
+			while (true) {
+				Socket socket = server.accept();
+				connections.execute(() -> handle(socket));
+			}
+		}
+	}
+
+	// Executor starting a virtual thread per task if the JVM has them, otherwise a cached thread pool
+	static ExecutorService newThreadPerTaskExecutor(String name) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// Java 20 or older
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	// Serve the requests of one connection until the client closes it
+	private void handle(Socket socket) {
+		try (Socket s = socket) {
+			s.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+			// reused by every batch of the connection
+			CellDiff diff = new CellDiff();
+			while (true) {
+				int op = in.read();
+				if (op < 0) {
+					return;
+				}
+				request(op, in, out, diff);
+				// answer pipelined requests together
+				if (in.available() == 0) {
+					out.flush();
+				}
+			}
+		} catch (EOFException e) {
+			// the client closed the connection in the middle of a request
+		} catch (IOException e) {
+			// error condition
+			System.out.println("Game connection failed: " + e.getMessage());
+		}
+	}
+
+	private void request(int op, DataInputStream in, DataOutputStream out, CellDiff diff) throws IOException {
+		switch (op) {
+		case NEW: {
+			int rows = in.readInt();
+			int cols = in.readInt();
+			int worms = in.readInt();
+			long seed = in.readLong();
+			int safeIndex = in.readInt();
+			if (rows <= 0 || cols <= 0 || (long) rows * cols > MAX_CELLS || safeIndex < -1 || safeIndex >= rows * cols) {
+				out.writeByte(BAD_REQUEST);
+				return;
+			}
+			Board board;
+			try {
+				board = new Board(rows, cols, worms);
+				board.placeWorms(seed, safeIndex);
+			} catch (IllegalArgumentException e) {
+				// too many worms for the board, or to keep the safe area around safeIndex free
+				out.writeByte(BAD_REQUEST);
+				return;
+			}
+			out.writeByte(OK);
+			out.writeLong(sessions.create(board).id);
+			return;
+		}
+		case REVEAL:
+		case FLAG:
+		case UNFLAG: {
+			long id = in.readLong();
+			int index = in.readInt();
+			SessionRegistry.Session session = sessions.get(id);
+			if (session == null) {
+				out.writeByte(NO_SESSION);
+				return;
+			}
+			session.lock.lock();
+			try {
+				Board board = session.board;
+				if (index < 0 || index >= board.size()) {
+					out.writeByte(BAD_REQUEST);
+					return;
+				}
+				out.writeByte(OK);
+				if (op == REVEAL) {
+					Board.Outcome outcome = board.reveal(index);
+					out.writeByte(outcome.ordinal());
+					out.writeInt(board.getRevealedCount());
+					for (int i = 0; i < board.getRevealedCount(); i++) {
+						int cell = board.getRevealedCell(i);
+						out.writeInt(cell);
+						out.writeByte(board.adjacentWorms(cell));
+					}
+				} else {
+					boolean changed = op == FLAG ? board.flag(index) : board.unflag(index);
+					out.writeByte(changed ? 1 : 0);
+					out.writeInt(board.getHooksLeft());
+				}
+			} finally {
+				session.lock.unlock();
+			}
+			return;
+		}
+		case BATCH: {
+			long id = in.readLong();
+			int count = in.readInt();
+			if (count < 0 || count > MAX_BATCH) {
+				// the moves can't be skipped, the stream can't be parsed any further
+				out.writeByte(BAD_REQUEST);
+				out.flush();
+				throw new IOException("batch of " + count + " moves");
+			}
+			int[] moves = new int[count];
+			for (int i = 0; i < count; i++) {
+				moves[i] = in.readInt();
+			}
+			SessionRegistry.Session session = sessions.get(id);
+			if (session == null) {
+				out.writeByte(NO_SESSION);
+				return;
+			}
+			session.lock.lock();
+			try {
+				Board board = session.board;
+				for (int move : moves) {
+					if (move < 0 || (move >>> 2) >= board.size() || (move & 3) > Board.UNFLAG_MOVE) {
+						out.writeByte(BAD_REQUEST);
+						return;
+					}
+				}
+				Board.Outcome outcome = board.applyMoves(moves, 0, count, diff);
+				out.writeByte(OK);
+				out.writeByte(outcome.ordinal());
+				out.writeInt(diff.getAppliedMoves());
+				out.writeInt(diff.size());
+				for (int i = 0; i < diff.size(); i++) {
+					out.writeInt(diff.entry(i));
+				}
+			} finally {
+				session.lock.unlock();
+			}
+			return;
+		}
+		case CLOSE:
+			out.writeByte(sessions.remove(in.readLong()) ? OK : NO_SESSION);
+			return;
+		default:
+			// the stream can't be parsed any further
+			out.writeByte(BAD_REQUEST);
+			out.flush();
+			throw new IOException("unknown opcode " + op);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Picks the most useful hint for the current board on a background thread.
+// The Solver first deduces everything that follows by logic; the worm probability of every remaining
+// frontier cell (a hidden cell next to a revealed count) is then computed by enumerating the worm
+// layouts that fit the counts. The hint is the frontier cell the player knows least about (probability
+// closest to one half), shown as a worm or as a safe cell depending on what it really holds.
+// analyze() is called after every move and cancels the analysis of the previous position, so the
+// result is usually ready long before the player clicks Apply. Boards too large to analyse between
+// moves are not analysed at all; awaitHint() then picks a random worm right away.
+public class HintEngine {
+	// A hint: the cell to reveal and whether it holds a worm
+	public static final class Hint {
+		final int index;
+		final boolean worm;
+
+		Hint(int index, boolean worm) {
+			this.index = index;
+			this.worm = worm;
+		}
+	}
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "hint-engine");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final SplittableRandom random = new SplittableRandom();
+	// Analysis of the latest position and the live board it belongs to
+	private Future<Hint> pending;
+	private Board pendingBoard;
+
+	// Start analysing the board as it is now, cancelling the analysis of the previous position
+	public synchronized void analyze(Board board) {
+		cancel();
+		// the background thread works on a copy, the game keeps changing the live board
+		Board snapshot = board.copy();
+		SplittableRandom analysisRandom = random.split();
+		pendingBoard = board;
+		pending = executor.submit(() -> chooseHint(snapshot, analysisRandom));
+	}
+
+	// Stop the running analysis
+	public synchronized void cancel() {
+		if (pending != null) {
+			pending.cancel(true);
+		}
+		pending = null;
+		pendingBoard = null;
+	}
+
+	// The hint for a board, waiting up to timeoutMillis for the analysis to finish.
+	// Falls back to a random hidden worm; returns null if there is nothing left to show.
+	public Hint awaitHint(Board board, long timeoutMillis) {
+		Future<Hint> future;
+		synchronized (this) {
+			future = pendingBoard == board ? pending : null;
+		}
+		if (future != null) {
+			try {
+				Hint hint = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+				// the cell must still be hidden and without a hook
+				if (hint != null && !board.isRevealed(hint.index) && !board.isFlagged(hint.index)) {
+					return hint;
+				}
+			} catch (TimeoutException | ExecutionException | CancellationException e) {
+				// not ready in time (or failed): fall back to a random worm
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return randomWorm(board, random.split());
+	}
+
+	// Find the frontier cell with the most uncertain worm probability
+	static Hint chooseHint(Board board, SplittableRandom random) throws InterruptedException {
+		Solver solver = new Solver(board);
+		solver.deduce();
+		// deduce() stops early when the analysis is cancelled
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedException();
+		}
+		Frontier frontier = new Frontier(board, solver);
+		frontier.computeProbabilities();
+
+		int best = -1;
+		double bestScore = 0;
+		int bestConstraints = 0;
+		int ties = 0;
+		for (int f = 0; f < frontier.cellCount; f++) {
+			int index = frontier.cells[f];
+			double score = Math.min(frontier.probability[f], 1 - frontier.probability[f]);
+			// hooked cells are left alone, and cells that are certain tell the player nothing new
+			if (board.isFlagged(index) || score < 1e-9) {
+				continue;
+			}
+			// higher score first, then the cell touching the most counts, then a random one of the ties
+			int constraints = frontier.cellConstraintCount[f];
+			int order = best < 0 ? 1 : Math.abs(score - bestScore) > 1e-9 ? Double.compare(score, bestScore)
+					: Integer.compare(constraints, bestConstraints);
+			if (order > 0) {
+				best = index;
+				bestScore = score;
+				bestConstraints = constraints;
+				ties = 1;
+			} else if (order == 0 && random.nextInt(++ties) == 0) {
+				best = index;
+			}
+		}
+		// nothing uncertain on the frontier (start of the game, or everything follows by logic)
+		if (best < 0) {
+			return randomWorm(board, random);
+		}
+		return new Hint(best, board.hasWorm(best));
+	}
+
+	// A random hidden worm without a hook, or null if there is none
+	static Hint randomWorm(Board board, SplittableRandom random) {
+		int hidden = 0;
+		for (int i = 0; i < board.size(); i++) {
+			if (board.hasWorm(i) && !board.isRevealed(i) && !board.isFlagged(i)) {
+				hidden++;
+			}
+		}
+		if (hidden == 0) {
+			return null;
+		}
+		int pick = random.nextInt(hidden);
+		for (int i = 0; i < board.size(); i++) {
+			if (board.hasWorm(i) && !board.isRevealed(i) && !board.isFlagged(i) && pick-- == 0) {
+				return new Hint(i, true);
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+// Replays a move journal (see MoveJournal) without the GUI: every game is rebuilt from its seed and its
+// moves are applied to a Board, which gives back exactly the game that was played. Prints how the games
+// ended and how fast they replay; a game number prints that game move by move, to reproduce a reported bug.
+// An entry cut off at the end of the file (the program was killed while writing) is ignored.
+//
+// Usage: java JournalReplay [journal file] [repeat] [game number]
+// The journal is replayed repeat times (default 1) to measure the replay speed.
+public class JournalReplay {
+
+	// How the games of a journal ended
+	static final class Totals {
+		int games;
+		int won;
+		int lost;
+		int unfinished;
+		int resumed;
+		long moves;
+		// Time the games were played for, from the journal's time stamps
+		long playedMillis;
+
+		// Count a game that ended (a new game started or the journal ended)
+		void finish(Board board) {
+			if (board == null) {
+				return;
+			}
+			games++;
+			if (!board.isFinished()) {
+				unfinished++;
+			} else if (board.getUnrevealedSafeCells() == 0) {
+				won++;
+			} else {
+				lost++;
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path path = args.length > 0 ? Paths.get(args[0]) : MoveJournal.defaultPath();
+		int repeat = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+		int printGame = args.length > 2 ? Integer.parseInt(args[2]) : -1;
+		ByteBuffer journal = ByteBuffer.wrap(Files.readAllBytes(path));
+
+		Totals totals = replay(journal.duplicate(), printGame);
+		long start = System.nanoTime();
+		for (int i = 1; i < repeat; i++) {
+			replay(journal.duplicate(), -1);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println(path + ": " + totals.games + " games, " + totals.moves + " moves, "
+				+ Math.round(totals.playedMillis / 1000.0) + " s played");
+		System.out.println("  won " + totals.won + ", lost " + totals.lost + ", unfinished " + totals.unfinished
+				+ ", resumed from a save (not replayed) " + totals.resumed);
+		if (repeat > 1 && seconds > 0) {
+			System.out.println("  replayed " + (repeat - 1) + " times: "
+					+ String.format(Locale.ROOT, "%.0f games/s, %.0f moves/s",
+							totals.games * (repeat - 1) / seconds, totals.moves * (repeat - 1) / seconds));
+		}
+	}
+
+	// Replay every game of a journal; prints the moves of game printGame (counting from 0, -1 for none)
+	static Totals replay(ByteBuffer journal, int printGame) {
+		Totals totals = new Totals();
+		if (journal.remaining() < 4 || journal.getInt() != MoveJournal.MAGIC) {
+			System.out.println("Not a move journal");
+			return totals;
+		}
+		// The game being replayed, null before the first game and for resumed games
+		Board board = null;
+		boolean print = false;
+		try {
+			while (journal.hasRemaining()) {
+				int entryStart = journal.position();
+				long key = getVarint(journal);
+				long millis = getVarint(journal);
+				int type = (int) (key & 7);
+				int index = (int) (key >>> 3);
+				if (type == MoveJournal.GAME) {
+					int rows = (int) getVarint(journal);
+					int cols = (int) getVarint(journal);
+					int worms = (int) getVarint(journal);
+					totals.finish(board);
+					board = new Board(rows, cols, worms);
+					print = totals.games == printGame;
+					if (print) {
+						System.out.println("Game " + printGame + ": " + rows + " x " + cols + ", " + worms + " worms");
+					}
+					continue;
+				}
+				if (type == MoveJournal.WORMS) {
+					long seed = journal.getLong();
+					if (board != null) {
+						board.placeWorms(seed, index - 1);
+					}
+					if (print) {
+						System.out.println("  worms placed from seed " + seed + (index > 0 ? " around cell " + (index - 1) : ""));
+						System.out.print(board.answerMap());
+					}
+					continue;
+				}
+				if (type == MoveJournal.RESUMED) {
+					totals.finish(board);
+					totals.resumed++;
+					board = null;
+					print = false;
+					continue;
+				}
+				if (board == null) {
+					continue;
+				}
+				if (index >= board.size()) {
+					throw new IllegalArgumentException("cell " + index + " outside the board at byte " + entryStart);
+				}
+				totals.moves++;
+				totals.playedMillis += millis;
+				Object result = apply(board, type, index);
+				if (print) {
+					System.out.println("  +" + millis + " ms " + moveName(type) + " row " + index / board.cols
+							+ " col " + index % board.cols + ": " + result);
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			// the last entry was cut off
+		} catch (IllegalArgumentException e) {
+			// error condition
+			System.out.println("Damaged move journal: " + e.getMessage());
+		}
+		totals.finish(board);
+		return totals;
+	}
+
+	// Apply a move the way the game does; returns what it did
+	private static Object apply(Board board, int type, int index) {
+		switch (type) {
+		case MoveJournal.REVEAL:
+			return board.reveal(index);
+		case MoveJournal.HOOK:
+			return board.flag(index);
+		case MoveJournal.UNHOOK:
+			return board.unflag(index);
+		case MoveJournal.HINT:
+			// the hint shows a worm without ending the game, or reveals a safe cell like a click
+			return board.hasWorm(index) ? board.revealWormHint(index) : board.reveal(index);
+		default:
+			throw new IllegalArgumentException("unknown entry type " + type);
+		}
+	}
+
+	private static String moveName(int type) {
+		switch (type) {
+		case MoveJournal.REVEAL:
+			return "reveal";
+		case MoveJournal.HOOK:
+			return "hook";
+		case MoveJournal.UNHOOK:
+			return "unhook";
+		default:
+			return "hint";
+		}
+	}
+
+	// Unsigned LEB128, see MoveJournal
+	private static long getVarint(ByteBuffer journal) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = journal.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("varint too long at byte " + journal.position());
+	}
+}
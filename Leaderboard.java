@@ -0,0 +1,263 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Won games of every level, with the player's rank, best time and time histogram per level.
+// Games are appended to a file as fixed size records and never rewritten; at startup the file is read
+// once and every level gets a Fenwick tree (binary indexed tree) over the winning times in seconds, so
+// recording a game and looking up a rank take O(log max time) whatever the number of games.
+//
+// File: MAGIC, VERSION, then one RECORD_BYTES record per game (big-endian):
+//   rows, columns, worms, seconds, flags (HINT_USED) as ints, seed and end time (epoch ms) as longs.
+// A record cut off at the end of the file (the program was killed while writing) is ignored, and so are
+// damaged records (sizes that don't fit a key, times outside 0 to MAX_SECONDS).
+//
+// Usage: java Leaderboard [file] prints every level's statistics.
+public class Leaderboard {
+	static final int MAGIC = 0x57534C42;	// "WSLB"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 8;
+	static final int RECORD_BYTES = 36;
+	// Flag bits
+	static final int HINT_USED = 1;
+	// Smallest time range of a level's tree, in seconds
+	static final int MIN_SECONDS = 1024;
+	// Longest time kept, a day; slower games are recorded with this time
+	static final int MAX_SECONDS = 24 * 60 * 60;
+	// Largest rows, columns and worms of a key
+	static final int MAX_SIZE = (1 << 21) - 1;
+
+	// Winning times of one board size
+	static final class LevelStats {
+		final int rows;
+		final int cols;
+		final int worms;
+		int games;
+		int hintGames;
+		int bestSeconds = Integer.MAX_VALUE;
+		long bestSeed;
+		// Games per time in seconds, and the Fenwick tree over it (tree[i] counts times i - lowbit(i) to i - 1)
+		int[] counts = new int[MIN_SECONDS];
+		int[] tree = new int[MIN_SECONDS + 1];
+
+		LevelStats(int rows, int cols, int worms) {
+			this.rows = rows;
+			this.cols = cols;
+			this.worms = worms;
+		}
+
+		void add(int seconds, boolean hintUsed, long seed) {
+			if (seconds >= counts.length) {
+				grow(seconds);
+			}
+			games++;
+			hintGames += hintUsed ? 1 : 0;
+			if (seconds < bestSeconds) {
+				bestSeconds = seconds;
+				bestSeed = seed;
+			}
+			counts[seconds]++;
+			for (int i = seconds + 1; i < tree.length; i += i & -i) {
+				tree[i]++;
+			}
+		}
+
+		// Number of games won in less than the given time
+		int countFaster(int seconds) {
+			int count = 0;
+			for (int i = Math.min(seconds, counts.length); i > 0; i -= i & -i) {
+				count += tree[i];
+			}
+			return count;
+		}
+
+		// Games won per bucket of bucketSeconds, up to the slowest game
+		int[] histogram(int bucketSeconds) {
+			int slowest = counts.length - 1;
+			while (slowest > 0 && counts[slowest] == 0) {
+				slowest--;
+			}
+			int[] buckets = new int[slowest / bucketSeconds + 1];
+			for (int bucket = 0; bucket < buckets.length; bucket++) {
+				buckets[bucket] = countFaster((bucket + 1) * bucketSeconds) - countFaster(bucket * bucketSeconds);
+			}
+			return buckets;
+		}
+
+		// Double the time range until it holds seconds (at most MAX_SECONDS) and rebuild the tree
+		private void grow(int seconds) {
+			int size = Math.max(counts.length, Integer.highestOneBit(seconds) << 1);
+			int[] grown = new int[size];
+			System.arraycopy(counts, 0, grown, 0, counts.length);
+			counts = grown;
+			rebuildTree();
+		}
+
+		// Build the tree from the counts in O(time range): every node adds itself to its parent
+		void rebuildTree() {
+			tree = new int[counts.length + 1];
+			for (int i = 1; i < tree.length; i++) {
+				tree[i] += counts[i - 1];
+				int parent = i + (i & -i);
+				if (parent < tree.length) {
+					tree[parent] += tree[i];
+				}
+			}
+		}
+	}
+
+	private final Path path;
+	// Statistics by board size
+	private final Map<Long, LevelStats> levels = new TreeMap<>();
+
+	private Leaderboard(Path path) {
+		this.path = path;
+	}
+
+	// Default leaderboard location in the user's home directory
+	public static Path defaultPath() {
+		return Paths.get(System.getProperty("user.home"), ".wormsweeper", "leaderboard.bin");
+	}
+
+	// Read every game recorded so far; an unreadable file gives an empty leaderboard (which records
+	// new games only if the file can be written)
+	public static Leaderboard load(Path path) {
+		Leaderboard leaderboard = new Leaderboard(path);
+		if (!Files.exists(path)) {
+			return leaderboard;
+		}
+		try {
+			ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+			if (data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.getInt() != VERSION) {
+				throw new IOException("not a version " + VERSION + " leaderboard");
+			}
+			int damaged = 0;
+			while (data.remaining() >= RECORD_BYTES) {
+				int rows = data.getInt();
+				int cols = data.getInt();
+				int worms = data.getInt();
+				int seconds = data.getInt();
+				int flags = data.getInt();
+				long seed = data.getLong();
+				data.getLong();	// end time, for later use
+				if (rows <= 0 || cols <= 0 || worms < 0 || rows > MAX_SIZE || cols > MAX_SIZE || worms > MAX_SIZE
+						|| seconds < 0 || seconds > MAX_SECONDS) {
+					damaged++;
+					continue;
+				}
+				LevelStats stats = leaderboard.stats(rows, cols, worms);
+				// the trees are built once at the end instead of updated per game
+				if (seconds >= stats.counts.length) {
+					stats.grow(seconds);
+				}
+				stats.games++;
+				stats.hintGames += (flags & HINT_USED) != 0 ? 1 : 0;
+				if (seconds < stats.bestSeconds) {
+					stats.bestSeconds = seconds;
+					stats.bestSeed = seed;
+				}
+				stats.counts[seconds]++;
+			}
+			if (damaged > 0) {
+				// error condition
+				System.out.println("Skipped " + damaged + " damaged records in leaderboard " + path);
+			}
+		} catch (IOException e) {
+			// error condition
+			System.out.println("Failed to read leaderboard " + path + ": " + e.getMessage());
+		}
+		for (LevelStats stats : leaderboard.levels.values()) {
+			stats.rebuildTree();
+		}
+		return leaderboard;
+	}
+
+	// Record a won game; returns its rank at the level (1 is the fastest, ties share a rank)
+	public int record(int rows, int cols, int worms, int seconds, boolean hintUsed, long seed) {
+		seconds = Math.min(seconds, MAX_SECONDS);
+		LevelStats stats = stats(rows, cols, worms);
+		stats.add(seconds, hintUsed, seed);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+		record.putInt(rows).putInt(cols).putInt(worms).putInt(seconds).putInt(hintUsed ? HINT_USED : 0)
+				.putLong(seed).putLong(System.currentTimeMillis()).flip();
+		try {
+			Files.createDirectories(path.toAbsolutePath().getParent());
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND)) {
+				if (channel.size() == 0) {
+					channel.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+				}
+				while (record.hasRemaining()) {
+					channel.write(record);
+				}
+			}
+		} catch (IOException e) {
+			// error condition
+			System.out.println("Failed to write leaderboard " + path + ": " + e.getMessage());
+		}
+		return rank(stats, seconds);
+	}
+
+	// Statistics of a board size, null if no game was won there
+	public LevelStats get(int rows, int cols, int worms) {
+		return levels.get(key(rows, cols, worms));
+	}
+
+	// Rank a time would have at a level
+	public static int rank(LevelStats stats, int seconds) {
+		return stats.countFaster(seconds) + 1;
+	}
+
+	private LevelStats stats(int rows, int cols, int worms) {
+		return levels.computeIfAbsent(key(rows, cols, worms), key -> new LevelStats(rows, cols, worms));
+	}
+
+	// Board sizes sort by rows, columns, then worms (21 bits each)
+	private static long key(int rows, int cols, int worms) {
+		return (long) rows << 42 | (long) cols << 21 | worms;
+	}
+
+	public static void main(String[] args) {
+		Path path = args.length > 0 ? Paths.get(args[0]) : defaultPath();
+		long start = System.nanoTime();
+		Leaderboard leaderboard = load(path);
+		long loadMillis = (System.nanoTime() - start) / 1_000_000;
+		System.out.println(path + " loaded in " + loadMillis + " ms");
+		for (LevelStats stats : leaderboard.levels.values()) {
+			System.out.println();
+			System.out.println(stats.rows + " x " + stats.cols + ", " + stats.worms + " worms: " + stats.games
+					+ " games won (" + stats.hintGames + " with a hint), best " + stats.bestSeconds
+					+ " s (board seed " + stats.bestSeed + "), median " + medianSeconds(stats) + " s");
+			// one minute buckets, or 10 second buckets if every game took less than a minute
+			int bucketSeconds = stats.histogram(60).length > 1 ? 60 : 10;
+			int[] histogram = stats.histogram(bucketSeconds);
+			for (int bucket = 0; bucket < histogram.length; bucket++) {
+				if (histogram[bucket] > 0) {
+					System.out.println(String.format("  %5d - %5d s: %d", bucket * bucketSeconds,
+							(bucket + 1) * bucketSeconds - 1, histogram[bucket]));
+				}
+			}
+		}
+	}
+
+	// Time of the middle game, found by binary search on the tree
+	private static int medianSeconds(LevelStats stats) {
+		int low = 0;
+		int high = stats.counts.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (stats.countFaster(mid + 1) * 2 >= stats.games) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,94 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// A game level: board size and worm count, read from the levels.txt definitions
+public class Level {
+	final String name;
+	final int rows;
+	final int cols;
+	final int worms;
+	// image resource shown on the level button, or null for a text-only button
+	final String icon;
+
+	public Level(String name, int rows, int cols, int worms, String icon) {
+		this.name = name;
+		this.rows = rows;
+		this.cols = cols;
+		this.worms = worms;
+		this.icon = icon;
+	}
+
+	// Total number of cells on the board
+	public int cells() {
+		return rows * cols;
+	}
+
+	// Text for the level button tooltip
+	public String describe() {
+		return rows + " x " + cols + " grid\n " + worms + " worms";
+	}
+
+	// Load the level definitions from a classpath resource,
+	// falling back to the classic Basic and Advanced levels if it can't be read
+	public static List<Level> load(String resource) {
+		try (InputStream in = Level.class.getResourceAsStream(resource)) {
+			if (in == null) {
+				System.out.println("Level file " + resource + " not found, using default levels");
+				return defaults();
+			}
+			return parse(in);
+		} catch (IOException | IllegalArgumentException e) {
+			// error condition
+			System.out.println("Failed to read levels: " + e.getMessage());
+			return defaults();
+		}
+	}
+
+	// Parse one level per line: name, rows, columns, worms[, icon]; '#' starts a comment
+	static List<Level> parse(InputStream in) throws IOException {
+		List<Level> levels = new ArrayList<>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] fields = line.split("\\s*,\\s*");
+			if (fields.length < 4 || fields.length > 5) {
+				throw new IllegalArgumentException("line " + lineNumber + ": expected name, rows, columns, worms[, icon]");
+			}
+			try {
+				int rows = Integer.parseInt(fields[1]);
+				int cols = Integer.parseInt(fields[2]);
+				int worms = Integer.parseInt(fields[3]);
+				// same limits as the board itself
+				if (rows <= 0 || cols <= 0 || worms < 0 || (long) rows * cols > Integer.MAX_VALUE || worms >= rows * cols) {
+					throw new IllegalArgumentException("line " + lineNumber + ": invalid board size or worm count");
+				}
+				levels.add(new Level(fields[0], rows, cols, worms, fields.length == 5 ? fields[4] : null));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage());
+			}
+		}
+		if (levels.isEmpty()) {
+			throw new IllegalArgumentException("no levels defined");
+		}
+		return levels;
+	}
+
+	// The classic levels: basic has a 10x10 grid with 10 worms, advanced a 15x15 grid with 30 worms
+	static List<Level> defaults() {
+		List<Level> levels = new ArrayList<>();
+		levels.add(new Level("Basic", 10, 10, 10, "redapple.png"));
+		levels.add(new Level("Advanced", 15, 15, 30, "greenapple.png"));
+		return levels;
+	}
+}
@@ -0,0 +1,248 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Latency and size histograms of the game's hot paths, cheap enough to stay on all the time.
+// A value is counted in the power of two bucket it falls in: recording is a few atomic increments
+// and allocates nothing, from any thread. Percentiles are read from the buckets, so they are upper
+// bounds within a factor of two, which is enough to see where time goes.
+// start() publishes the histograms over JMX (MXBean NAME, see MetricsMXBean) and writes them to
+// a text file every SNAPSHOT_INTERVAL_SECONDS.
+public final class Metrics implements MetricsMXBean {
+	static final String NAME = "wormsweeper:type=Metrics";
+	static final long SNAPSHOT_INTERVAL_SECONDS = 10;
+	static final int BUCKETS = 64;
+
+	// Counts of values by power of two (bucket i holds values below 2^i), with their total and maximum
+	public static final class Histogram {
+		final String name;
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong sum = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		Histogram(String name) {
+			this.name = name;
+		}
+
+		public void record(long value) {
+			value = Math.max(0, value);
+			buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+			sum.addAndGet(value);
+			max.accumulateAndGet(value, Math::max);
+		}
+
+		// Record the time since a System.nanoTime() start
+		public void recordSince(long startNanos) {
+			record(System.nanoTime() - startNanos);
+		}
+
+		Summary summary() {
+			long[] counts = new long[BUCKETS];
+			long total = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = buckets.get(i);
+				total += counts[i];
+			}
+			long maximum = max.get();
+			return new Summary(total, total == 0 ? 0 : sum.get() / total, percentile(counts, total, 0.5, maximum),
+					percentile(counts, total, 0.9, maximum), percentile(counts, total, 0.99, maximum), maximum);
+		}
+
+		void reset() {
+			for (int i = 0; i < BUCKETS; i++) {
+				buckets.set(i, 0);
+			}
+			sum.set(0);
+			max.set(0);
+		}
+
+		// Upper bound of the bucket holding the given fraction of the values (at most the maximum)
+		private static long percentile(long[] counts, long total, double fraction, long maximum) {
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += counts[i];
+				if (seen > 0 && seen >= total * fraction) {
+					return i == 0 ? 0 : Math.min(maximum, (1L << i) - 1);
+				}
+			}
+			return 0;
+		}
+	}
+
+	// Summary of a histogram, shown as a composite attribute over JMX
+	public static final class Summary {
+		private final long count;
+		private final long mean;
+		private final long p50;
+		private final long p90;
+		private final long p99;
+		private final long max;
+
+		Summary(long count, long mean, long p50, long p90, long p99, long max) {
+			this.count = count;
+			this.mean = mean;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMean() {
+			return mean;
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP90() {
+			return p90;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		@Override public String toString() {
+			return "count " + count + ", mean " + mean + ", p50 <= " + p50 + ", p90 <= " + p90 + ", p99 <= " + p99
+					+ ", max " + max;
+		}
+	}
+
+	// Cell reveals (revealCell): time on the JavaFX thread and cells opened per reveal
+	public static final Histogram REVEAL_NANOS = new Histogram("reveal_ns");
+	public static final Histogram REVEAL_CELLS = new Histogram("reveal_cells");
+	// New game (resetGame) and field rebuild (reDraw)
+	public static final Histogram RESET_NANOS = new Histogram("reset_ns");
+	public static final Histogram REDRAW_NANOS = new Histogram("redraw_ns");
+	// Camera frame stages: grab, red detection, conversion to the dialog picture
+	public static final Histogram GRAB_NANOS = new Histogram("camera_grab_ns");
+	public static final Histogram DETECT_NANOS = new Histogram("camera_detect_ns");
+	public static final Histogram CONVERT_NANOS = new Histogram("camera_convert_ns");
+	// Time a camera result waits for the JavaFX thread, and from grab to screen
+	public static final Histogram UI_DELAY_NANOS = new Histogram("ui_delay_ns");
+	public static final Histogram FRAME_LATENCY_NANOS = new Histogram("frame_latency_ns");
+	// Time from opening the hint dialog to showing its first camera frame
+	public static final Histogram FIRST_FRAME_NANOS = new Histogram("camera_first_frame_ns");
+	private static final Histogram[] ALL = { REVEAL_NANOS, REVEAL_CELLS, RESET_NANOS, REDRAW_NANOS, GRAB_NANOS,
+			DETECT_NANOS, CONVERT_NANOS, UI_DELAY_NANOS, FRAME_LATENCY_NANOS, FIRST_FRAME_NANOS };
+
+	private static final Metrics INSTANCE = new Metrics();
+	private static ScheduledExecutorService snapshots;
+
+	private Metrics() {
+	}
+
+	// Default snapshot location in the user's home directory
+	public static Path defaultPath() {
+		return Paths.get(System.getProperty("user.home"), ".wormsweeper", "metrics.txt");
+	}
+
+	// Register the MXBean and write a snapshot to path periodically; does nothing if already started
+	public static synchronized void start(Path path) {
+		if (snapshots != null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(NAME));
+		} catch (JMException e) {
+			// error condition
+			System.out.println("Failed to register metrics MXBean: " + e.getMessage());
+		}
+		snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "metrics-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		snapshots.scheduleWithFixedDelay(() -> writeSnapshot(path), SNAPSHOT_INTERVAL_SECONDS,
+				SNAPSHOT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	// Write the current histograms, replacing the previous snapshot in one step
+	public static void writeSnapshot(Path path) {
+		try {
+			Files.createDirectories(path.toAbsolutePath().getParent());
+			Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+			Files.write(temp, INSTANCE.snapshot().getBytes(StandardCharsets.UTF_8));
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// error condition
+			System.out.println("Failed to write metrics " + path + ": " + e.getMessage());
+		}
+	}
+
+	@Override public Summary getReveal() {
+		return REVEAL_NANOS.summary();
+	}
+
+	@Override public Summary getRevealCells() {
+		return REVEAL_CELLS.summary();
+	}
+
+	@Override public Summary getReset() {
+		return RESET_NANOS.summary();
+	}
+
+	@Override public Summary getRedraw() {
+		return REDRAW_NANOS.summary();
+	}
+
+	@Override public Summary getCameraGrab() {
+		return GRAB_NANOS.summary();
+	}
+
+	@Override public Summary getCameraDetect() {
+		return DETECT_NANOS.summary();
+	}
+
+	@Override public Summary getCameraConvert() {
+		return CONVERT_NANOS.summary();
+	}
+
+	@Override public Summary getUiDelay() {
+		return UI_DELAY_NANOS.summary();
+	}
+
+	@Override public Summary getFrameLatency() {
+		return FRAME_LATENCY_NANOS.summary();
+	}
+
+	@Override public Summary getFirstFrame() {
+		return FIRST_FRAME_NANOS.summary();
+	}
+
+	@Override public String snapshot() {
+		StringBuilder text = new StringBuilder("# " + Instant.now() + "\n");
+		for (Histogram histogram : ALL) {
+			text.append(histogram.name).append(": ").append(histogram.summary()).append('\n');
+		}
+		return text.toString();
+	}
+
+	@Override public void reset() {
+		for (Histogram histogram : ALL) {
+			histogram.reset();
+		}
+	}
+}
@@ -0,0 +1,28 @@
+// Management interface of Metrics: every histogram as a composite attribute (times in nanoseconds)
+public interface MetricsMXBean {
+	Metrics.Summary getReveal();
+
+	Metrics.Summary getRevealCells();
+
+	Metrics.Summary getReset();
+
+	Metrics.Summary getRedraw();
+
+	Metrics.Summary getCameraGrab();
+
+	Metrics.Summary getCameraDetect();
+
+	Metrics.Summary getCameraConvert();
+
+	Metrics.Summary getUiDelay();
+
+	Metrics.Summary getFrameLatency();
+
+	Metrics.Summary getFirstFrame();
+
+	// All histograms as text, as written to the snapshot file
+	String snapshot();
+
+	// Start counting from zero
+	void reset();
+}
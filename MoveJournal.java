@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Append-only journal of every game and move, for reproducing reported bugs and studying real games
+// (see JournalReplay). Entries are encoded and written on a background thread through a buffer that is
+// written to the file when it fills up and at least every FLUSH_INTERVAL_MS, so the game thread only
+// hands over a few numbers per move.
+//
+// File: MAGIC, then entries. An entry is a varint of (cell index << 3 | type) and a varint of the
+// milliseconds since the previous entry. A GAME entry (cell index 0) is followed by varints of rows,
+// columns and worms. A WORMS entry has the safe first click + 1 as its cell index (0 for none) and is
+// followed by the 8 byte seed the worms were placed from; in no-guess games it comes after the hooks
+// placed before the first click. Moves belong to the last GAME entry; a RESUMED entry starts a game
+// continued from a save file, which can't be replayed.
+public class MoveJournal implements AutoCloseable {
+	static final int MAGIC = 0x57534A31;	// "WSJ1"
+	// Entry types
+	static final int GAME = 0;
+	static final int REVEAL = 1;
+	static final int HOOK = 2;
+	static final int UNHOOK = 3;
+	static final int HINT = 4;
+	static final int RESUMED = 5;
+	static final int WORMS = 6;
+	static final int BUFFER_BYTES = 64 * 1024;
+	static final long FLUSH_INTERVAL_MS = 1000;
+
+	private final Path path;
+	private final FileChannel channel;
+	// Encoded entries not written yet; only used on the writer thread
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "move-journal");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// Time of the previous entry; only used on the writer thread
+	private long lastMillis;
+
+	public MoveJournal(Path path) throws IOException {
+		this.path = path;
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		if (channel.size() == 0) {
+			buffer.putInt(MAGIC);
+		}
+		lastMillis = System.currentTimeMillis();
+		writer.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	// Default journal location in the user's home directory
+	public static Path defaultPath() {
+		return Paths.get(System.getProperty("user.home"), ".wormsweeper", "journal.bin");
+	}
+
+	// A new, empty board
+	public void gameStarted(int rows, int cols, int worms) {
+		long now = System.currentTimeMillis();
+		writer.execute(() -> {
+			entry(GAME, 0, now);
+			putVarint(rows);
+			putVarint(cols);
+			putVarint(worms);
+		});
+	}
+
+	// The worms of the current game were placed from seed (safeIndex is the protected first click, -1 if none)
+	public void wormsPlaced(long seed, int safeIndex) {
+		long now = System.currentTimeMillis();
+		writer.execute(() -> {
+			entry(WORMS, safeIndex + 1, now);
+			buffer.putLong(seed);
+		});
+	}
+
+	// A move of the current game: REVEAL, HOOK, UNHOOK or HINT on a cell, or RESUMED
+	public void move(int type, int index) {
+		long now = System.currentTimeMillis();
+		writer.execute(() -> entry(type, index, now));
+	}
+
+	// Write everything and close the file
+	@Override public void close() {
+		writer.execute(this::flush);
+		writer.shutdown();
+		try {
+			if (!writer.awaitTermination(1, TimeUnit.SECONDS)) {
+				System.out.println("Move journal did not finish writing");
+			}
+			channel.close();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			// error condition
+			System.out.println("Failed to close move journal " + path + ": " + e.getMessage());
+		}
+	}
+
+	// Encode one entry, making room in the buffer first; an entry takes at most 36 bytes
+	private void entry(int type, int index, long millis) {
+		if (buffer.remaining() < 64) {
+			flush();
+		}
+		putVarint((long) index << 3 | type);
+		putVarint(Math.max(0, millis - lastMillis));
+		lastMillis = millis;
+	}
+
+	// Unsigned LEB128: 7 bits per byte, the high bit set on every byte but the last
+	private void putVarint(long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			// error condition
+			System.out.println("Failed to write move journal " + path + ": " + e.getMessage());
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,57 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Generates boards that can be solved by logic alone from the first click.
+// Candidate worm layouts are drawn from seeds and played out by the Solver; every core of the
+// fork-join pool tries its own stream of seeds and the first solvable seed wins.
+// Boards are rebuilt from the winning seed with Board.placeWorms(seed, firstClick).
+public class NoGuessGenerator {
+	private final ForkJoinPool pool;
+
+	public NoGuessGenerator(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	// Find a seed whose layout is solvable from firstClick, or an empty result if none was found in time
+	public OptionalLong generate(int rows, int cols, int worms, int firstClick, long seed, long timeoutMillis) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		// set as soon as one worker succeeds so the others stop
+		AtomicBoolean found = new AtomicBoolean();
+		SplittableRandom seeds = new SplittableRandom(seed);
+		List<Callable<Long>> workers = new ArrayList<>();
+		for (int i = 0; i < pool.getParallelism(); i++) {
+			SplittableRandom workerSeeds = seeds.split();
+			workers.add(() -> {
+				while (!found.get() && System.nanoTime() < deadline) {
+					long candidate = workerSeeds.nextLong();
+					Board board = new Board(rows, cols, worms);
+					board.placeWorms(candidate, firstClick);
+					if (Solver.solvable(board, firstClick)) {
+						found.set(true);
+						return candidate;
+					}
+				}
+				throw new TimeoutException("No solvable board found");
+			});
+		}
+		try {
+			// returns the result of the first worker that succeeds
+			return OptionalLong.of(pool.invokeAny(workers, timeoutMillis, TimeUnit.MILLISECONDS));
+		} catch (ExecutionException | TimeoutException e) {
+			return OptionalLong.empty();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return OptionalLong.empty();
+		} finally {
+			found.set(true);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+import org.bytedeco.opencv.global.opencv_core;
+import org.bytedeco.opencv.global.opencv_imgproc;
+import org.bytedeco.opencv.opencv_core.Mat;
+import org.bytedeco.opencv.opencv_core.Rect;
+import org.bytedeco.opencv.opencv_core.Scalar;
+
+// Decides whether the camera sees a red item, frame by frame.
+//  - Red wraps around the hue circle, so both ends of it are checked (OpenCV hue 0-10 and 161-179).
+//  - Large frames are halved with an image pyramid until they are at most PROCESS_WIDTH wide.
+//  - A frame only counts as red when the red area covers MIN_AREA_FRACTION of the picture, and red is
+//    only reported after HOLD_FRAMES such frames in a row (and cleared after HOLD_FRAMES frames without),
+//    so a few red pixels of noise or a single bad frame don't unlock a hint.
+//  - Once red is found, following frames only look at the area around it (the region of interest),
+//    growing back to the whole frame as soon as the red leaves that area.
+// All Mats are reused from frame to frame; close() releases them.
+public class RedDetector implements AutoCloseable {
+	// Frames wider than this are scaled down before detection
+	static final int PROCESS_WIDTH = 320;
+	// Share of the (scaled) frame the red area has to cover
+	static final double MIN_AREA_FRACTION = 0.01;
+	// Consecutive frames needed to switch the detection on or off
+	static final int HOLD_FRAMES = 3;
+	// The region of interest is the last red area grown by this share of its size on every side
+	static final double ROI_MARGIN = 0.5;
+
+	// Both red hue bands, with the same saturation and brightness limits
+	private final Scalar lowBandMin = new Scalar(0, 155, 84, 0);
+	private final Scalar lowBandMax = new Scalar(10, 255, 255, 0);
+	private final Scalar highBandMin = new Scalar(161, 155, 84, 0);
+	private final Scalar highBandMax = new Scalar(179, 255, 255, 0);
+	private final Mat lowRedMin = new Mat(1, 1, opencv_core.CV_8UC3, lowBandMin);
+	private final Mat lowRedMax = new Mat(1, 1, opencv_core.CV_8UC3, lowBandMax);
+	private final Mat highRedMin = new Mat(1, 1, opencv_core.CV_8UC3, highBandMin);
+	private final Mat highRedMax = new Mat(1, 1, opencv_core.CV_8UC3, highBandMax);
+
+	// Pyramid levels of the frame, and the work buffers
+	private final Mat[] pyramid = {new Mat(), new Mat(), new Mat(), new Mat()};
+	private final Mat hsv = new Mat();
+	private final Mat lowMask = new Mat();
+	private final Mat redMask = new Mat();
+	// Header on the region of interest of the scaled frame (shares its pixels)
+	private final Mat region = new Mat();
+
+	// Region of interest in scaled frame coordinates, empty while the whole frame is searched
+	private int roiX;
+	private int roiY;
+	private int roiWidth;
+	private int roiHeight;
+	// Frames in a row that agree with the opposite of the current state
+	private int streak;
+	private boolean detected;
+	// Red area (in scaled pixels) of the last frame
+	private int lastArea;
+
+	// Look for red in a BGR frame; returns whether red is currently detected (after hysteresis)
+	public boolean detect(Mat bgr) {
+		Mat scaled = scaleDown(bgr);
+		int width = scaled.cols();
+		int height = scaled.rows();
+		if (roiWidth == 0 || roiX + roiWidth > width || roiY + roiHeight > height) {
+			setRoi(0, 0, width, height);
+		}
+		boolean wholeFrame = roiWidth == width && roiHeight == height;
+
+		Mat searched = scaled;
+		if (!wholeFrame) {
+			// assigning the frame to the same header and moving its borders in place creates no Mat per frame
+			region.put(scaled);
+			region.adjustROI(-roiY, roiY + roiHeight - height, -roiX, roiX + roiWidth - width);
+			searched = region;
+		}
+		opencv_imgproc.cvtColor(searched, hsv, opencv_imgproc.COLOR_BGR2HSV);
+		opencv_core.inRange(hsv, lowRedMin, lowRedMax, lowMask);
+		opencv_core.inRange(hsv, highRedMin, highRedMax, redMask);
+		opencv_core.bitwise_or(redMask, lowMask, redMask);
+		lastArea = opencv_core.countNonZero(redMask);
+		boolean red = lastArea >= MIN_AREA_FRACTION * width * height;
+		if (red) {
+			trackRoi(width, height);
+		}
+		// lost the red inside the region of interest: search the whole frame next time
+		if (!red) {
+			setRoi(0, 0, width, height);
+		}
+
+		// hysteresis: only change state after HOLD_FRAMES frames in a row say so
+		if (red != detected) {
+			if (++streak >= HOLD_FRAMES) {
+				detected = red;
+				streak = 0;
+			}
+		} else {
+			streak = 0;
+		}
+		return detected;
+	}
+
+	public boolean isDetected() {
+		return detected;
+	}
+
+	// Red area of the last frame, in pixels of the scaled frame
+	public int getLastArea() {
+		return lastArea;
+	}
+
+	// Forget the detection state, e.g. when a new camera session starts
+	public void reset() {
+		detected = false;
+		streak = 0;
+		roiWidth = 0;
+	}
+
+	@Override public void close() {
+		for (Mat level : pyramid) {
+			level.close();
+		}
+		hsv.close();
+		lowMask.close();
+		redMask.close();
+		region.close();
+		lowRedMin.close();
+		lowRedMax.close();
+		highRedMin.close();
+		highRedMax.close();
+		lowBandMin.close();
+		lowBandMax.close();
+		highBandMin.close();
+		highBandMax.close();
+	}
+
+	// Halve the frame until it is at most PROCESS_WIDTH wide (or the pyramid runs out of levels)
+	private Mat scaleDown(Mat bgr) {
+		Mat scaled = bgr;
+		for (int level = 0; level < pyramid.length && scaled.cols() > PROCESS_WIDTH; level++) {
+			opencv_imgproc.pyrDown(scaled, pyramid[level]);
+			scaled = pyramid[level];
+		}
+		return scaled;
+	}
+
+	// Next region of interest: the bounding box of the red pixels, grown by ROI_MARGIN on every side
+	private void trackRoi(int width, int height) {
+		try (Rect box = opencv_imgproc.boundingRect(redMask)) {
+			int marginX = (int) (box.width() * ROI_MARGIN) + 1;
+			int marginY = (int) (box.height() * ROI_MARGIN) + 1;
+			int left = Math.max(0, roiX + box.x() - marginX);
+			int top = Math.max(0, roiY + box.y() - marginY);
+			int right = Math.min(width, roiX + box.x() + box.width() + marginX);
+			int bottom = Math.min(height, roiY + box.y() + box.height() + marginY);
+			setRoi(left, top, right - left, bottom - top);
+		}
+	}
+
+	private void setRoi(int x, int y, int width, int height) {
+		roiX = x;
+		roiY = y;
+		roiWidth = width;
+		roiHeight = height;
+	}
+}
@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.bytedeco.javacv.OpenCVFrameGrabber;
+import org.bytedeco.opencv.global.opencv_imgcodecs;
+import org.bytedeco.opencv.opencv_core.Mat;
+
+// Recorded frames: every image of a directory (in file name order) or the frames of a video file.
+// All frames are decoded into memory by start(), so grab() costs nothing and a benchmark only measures
+// the detector. Replays from the first frame again after the last one if loop is set.
+public class ReplayFrameSource implements FrameSource {
+	// Image files read from a directory
+	static final String[] IMAGE_EXTENSIONS = {".png", ".jpg", ".jpeg", ".bmp"};
+	// At most this many frames of a video are kept in memory
+	static final int MAX_VIDEO_FRAMES = 3000;
+
+	private final Path path;
+	private final boolean loop;
+	private final List<Frame> frames = new ArrayList<>();
+	private int next;
+
+	public ReplayFrameSource(Path path, boolean loop) {
+		this.path = path;
+		this.loop = loop;
+	}
+
+	@Override public void start() throws Exception {
+		if (Files.isDirectory(path)) {
+			readImages();
+		} else {
+			readVideo();
+		}
+		if (frames.isEmpty()) {
+			throw new IOException("No frames found in " + path);
+		}
+		System.out.println("Replaying " + frames.size() + " frames from " + path);
+	}
+
+	// The next recorded frame, or null at the end of a replay that does not loop
+	@Override public Frame grab() {
+		if (next == frames.size()) {
+			if (!loop) {
+				return null;
+			}
+			next = 0;
+		}
+		return frames.get(next++);
+	}
+
+	// Number of frames loaded by start()
+	public int frameCount() {
+		return frames.size();
+	}
+
+	@Override public void close() {
+		for (Frame frame : frames) {
+			frame.close();
+		}
+		frames.clear();
+	}
+
+	private void readImages() throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (Stream<Path> list = Files.list(path)) {
+			list.filter(ReplayFrameSource::isImage).sorted().forEach(files::add);
+		}
+		try (OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat()) {
+			for (Path file : files) {
+				Mat image = opencv_imgcodecs.imread(file.toString());
+				if (image == null || image.empty()) {
+					// error condition
+					System.out.println("Skipping unreadable image " + file);
+					continue;
+				}
+				// the converted frame shares the Mat's memory, keep a copy of its own
+				frames.add(converter.convert(image).clone());
+				image.close();
+			}
+		}
+	}
+
+	private void readVideo() throws Exception {
+		try (OpenCVFrameGrabber grabber = new OpenCVFrameGrabber(path.toFile())) {
+			grabber.start();
+			Frame frame;
+			while (frames.size() < MAX_VIDEO_FRAMES && (frame = grabber.grab()) != null) {
+				// the grabber reuses its frame, keep a copy
+				frames.add(frame.clone());
+			}
+			grabber.stop();
+		}
+	}
+
+	private static boolean isImage(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		for (String extension : IMAGE_EXTENSIONS) {
+			if (name.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Saved state of the game in progress, so it can be resumed after the game is closed.
+// The file is memory-mapped and kept up to date move by move: a move only writes the cells it changed
+// and the small header, never the whole file, so saving costs the same on a 10x10 and a 2000x2000 board.
+//
+// Layout (big-endian):
+//   0  int  MAGIC            20 long seed          40 long cell checksum
+//   4  int  VERSION          28 int  hooks left    48 int  CRC32 of bytes 0-47
+//   8  int  rows             32 int  elapsed time  52 reserved
+//   12 int  columns          36 int  flags (HINT_USED)
+//   16 int  worms
+//   64 one packed cell per board cell (Board bit layout)
+// The cell checksum is a sum of one hash per cell, so it is updated by replacing the changed cells' terms.
+public class SaveFile implements AutoCloseable {
+	static final int MAGIC = 0x57534156;	// "WSAV"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 64;
+	// Header offsets
+	static final int ROWS = 8;
+	static final int COLS = 12;
+	static final int WORMS = 16;
+	static final int SEED = 20;
+	static final int HOOKS_LEFT = 28;
+	static final int ELAPSED = 32;
+	static final int FLAGS = 36;
+	static final int CELL_SUM = 40;
+	static final int HEADER_CRC = 48;
+	// Flag bits
+	static final int HINT_USED = 1;
+
+	// A game read back from a save file
+	public static final class Saved {
+		final Board board;
+		final int elapsedSeconds;
+		final boolean hintUsed;
+
+		Saved(Board board, int elapsedSeconds, boolean hintUsed) {
+			this.board = board;
+			this.elapsedSeconds = elapsedSeconds;
+			this.hintUsed = hintUsed;
+		}
+	}
+
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final Board board;
+	private long cellSum;
+
+	private SaveFile(Path path, FileChannel channel, MappedByteBuffer buffer, Board board) {
+		this.path = path;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.board = board;
+	}
+
+	// Default save location in the user's home directory
+	public static Path defaultPath() {
+		return Paths.get(System.getProperty("user.home"), ".wormsweeper", "save.bin");
+	}
+
+	// Start saving a game: writes the whole board once, later moves only update what they change
+	public static SaveFile create(Path path, Board board, int elapsedSeconds, boolean hintUsed) throws IOException {
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) board.size());
+			SaveFile save = new SaveFile(path, channel, buffer, board);
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(ROWS, board.rows);
+			buffer.putInt(COLS, board.cols);
+			buffer.putInt(WORMS, board.wormsTotal);
+			buffer.putLong(SEED, board.getSeed());
+			buffer.putInt(ELAPSED, elapsedSeconds);
+			buffer.putInt(FLAGS, hintUsed ? HINT_USED : 0);
+			buffer.put(HEADER_BYTES, board.cells);
+			for (int index = 0; index < board.size(); index++) {
+				save.cellSum += cellHash(index, board.cells[index]);
+			}
+			save.writeHeader();
+			return save;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// Read a saved game; returns null if there is none or the file is damaged or from another version
+	public static Saved load(Path path) {
+		if (!Files.exists(path)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_BYTES) {
+				throw new IOException("file too short");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException("not a version " + VERSION + " save file");
+			}
+			if (buffer.getInt(HEADER_CRC) != headerCrc(buffer)) {
+				throw new IOException("header checksum mismatch");
+			}
+			int rows = buffer.getInt(ROWS);
+			int cols = buffer.getInt(COLS);
+			if (rows <= 0 || cols <= 0 || channel.size() != HEADER_BYTES + (long) rows * cols) {
+				throw new IOException("wrong file size for a " + rows + "x" + cols + " board");
+			}
+			byte[] cells = new byte[rows * cols];
+			buffer.get(HEADER_BYTES, cells);
+			long sum = 0;
+			for (int index = 0; index < cells.length; index++) {
+				sum += cellHash(index, cells[index]);
+			}
+			if (sum != buffer.getLong(CELL_SUM)) {
+				throw new IOException("cell checksum mismatch");
+			}
+			Board board = Board.restore(rows, cols, buffer.getInt(WORMS), buffer.getLong(SEED), cells,
+					buffer.getInt(HOOKS_LEFT));
+			return new Saved(board, buffer.getInt(ELAPSED), (buffer.getInt(FLAGS) & HINT_USED) != 0);
+		} catch (IOException | IllegalArgumentException e) {
+			// error condition
+			System.out.println("Ignoring saved game " + path + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	// Delete the save file, e.g. when the game is over
+	public static void delete(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			// error condition
+			System.out.println("Failed to delete saved game: " + e.getMessage());
+		}
+	}
+
+	// Save the cells changed by a move (see Board.applyMoves())
+	public void changed(CellDiff changes) {
+		for (int i = 0; i < changes.size(); i++) {
+			writeCell(changes.index(i));
+		}
+		writeHeader();
+	}
+
+	public void setElapsedSeconds(int seconds) {
+		buffer.putInt(ELAPSED, seconds);
+		writeHeader();
+	}
+
+	public void setHintUsed(boolean used) {
+		buffer.putInt(FLAGS, used ? HINT_USED : 0);
+		writeHeader();
+	}
+
+	// Write the file to disk and close it
+	@Override public void close() {
+		try {
+			buffer.force();
+			channel.close();
+		} catch (IOException e) {
+			// error condition
+			System.out.println("Failed to close saved game " + path + ": " + e.getMessage());
+		}
+	}
+
+	// Replace a cell and its term of the cell checksum
+	private void writeCell(int index) {
+		byte old = buffer.get(HEADER_BYTES + index);
+		byte cell = board.cells[index];
+		buffer.put(HEADER_BYTES + index, cell);
+		cellSum += cellHash(index, cell) - cellHash(index, old);
+	}
+
+	// Write the values that change with moves and the header checksum
+	private void writeHeader() {
+		buffer.putInt(HOOKS_LEFT, board.getHooksLeft());
+		buffer.putLong(CELL_SUM, cellSum);
+		buffer.putInt(HEADER_CRC, headerCrc(buffer));
+	}
+
+	private static int headerCrc(MappedByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		crc.update(buffer.slice(0, HEADER_CRC));
+		return (int) crc.getValue();
+	}
+
+	// Hash of one cell for the cell checksum (SplitMix64 finalizer of index and value)
+	private static long cellHash(int index, byte cell) {
+		long z = ((long) index << 8 | (cell & 0xFF)) + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
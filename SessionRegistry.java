@@ -0,0 +1,124 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Game sessions of the GameServer by id, for many connections at once.
+// The sessions are spread over STRIPES maps, each with its own lock: connections working on sessions
+// in different stripes never wait for each other, and evicting idle sessions locks one stripe at a time.
+public class SessionRegistry {
+	// Number of stripes, a power of two
+	static final int STRIPES = 64;
+
+	// One game: its board and when a client last used it
+	public static final class Session {
+		final long id;
+		final Board board;
+		// Held while using the board (a lock rather than synchronized, which pins virtual threads)
+		final ReentrantLock lock = new ReentrantLock();
+		// System.nanoTime() of the last request
+		volatile long lastUsed;
+
+		Session(long id, Board board) {
+			this.id = id;
+			this.board = board;
+			this.lastUsed = System.nanoTime();
+		}
+	}
+
+	private final Map<Long, Session>[] maps = newMaps();
+	private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final AtomicLong size = new AtomicLong();
+
+	public SessionRegistry() {
+		for (int i = 0; i < STRIPES; i++) {
+			maps[i] = new HashMap<>();
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	// Generic arrays can't be created directly, the maps are only ever used as Map<Long, Session>
+	@SuppressWarnings("unchecked")
+	private static Map<Long, Session>[] newMaps() {
+		return (Map<Long, Session>[]) new Map<?, ?>[STRIPES];
+	}
+
+	// Register a new game and return its session
+	public Session create(Board board) {
+		Session session = new Session(nextId.getAndIncrement(), board);
+		int stripe = stripe(session.id);
+		locks[stripe].lock();
+		try {
+			maps[stripe].put(session.id, session);
+		} finally {
+			locks[stripe].unlock();
+		}
+		size.incrementAndGet();
+		return session;
+	}
+
+	// The session with an id, marked as used now; null if there is none (or it was evicted)
+	public Session get(long id) {
+		int stripe = stripe(id);
+		Session session;
+		locks[stripe].lock();
+		try {
+			session = maps[stripe].get(id);
+		} finally {
+			locks[stripe].unlock();
+		}
+		if (session != null) {
+			session.lastUsed = System.nanoTime();
+		}
+		return session;
+	}
+
+	// Remove a session; returns false if there was none
+	public boolean remove(long id) {
+		int stripe = stripe(id);
+		boolean removed;
+		locks[stripe].lock();
+		try {
+			removed = maps[stripe].remove(id) != null;
+		} finally {
+			locks[stripe].unlock();
+		}
+		if (removed) {
+			size.decrementAndGet();
+		}
+		return removed;
+	}
+
+	// Remove the sessions not used for idleNanos; returns how many were removed
+	public int evictIdle(long idleNanos) {
+		long now = System.nanoTime();
+		int evicted = 0;
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			locks[stripe].lock();
+			try {
+				for (Iterator<Session> it = maps[stripe].values().iterator(); it.hasNext();) {
+					if (now - it.next().lastUsed > idleNanos) {
+						it.remove();
+						evicted++;
+					}
+				}
+			} finally {
+				locks[stripe].unlock();
+			}
+		}
+		size.addAndGet(-evicted);
+		return evicted;
+	}
+
+	public long size() {
+		return size.get();
+	}
+
+	// Ids are handed out in sequence, so they are mixed to spread neighbouring ids over the stripes
+	private static int stripe(long id) {
+		long z = id * 0x9E3779B97F4A7C15L;
+		return (int) (z >>> 58) & (STRIPES - 1);
+	}
+}
@@ -0,0 +1,244 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Headless batch simulator: plays many games per level with an automatic player and reports the win rate,
+// the number of guesses per game and how long a game takes.
+// The player reveals every cell the Solver can prove safe; when logic is stuck it guesses the cell with
+// the lowest worm probability (see Frontier). The very first click is always a guess on the top left corner.
+// Games are split over all cores with a fork-join pool. Every game gets its own seed (derived from the run
+// seed and the game number) and its own random generator, so the tasks share no mutable state and a run
+// gives the same results whatever the number of cores. Each task returns its own Stats, which are merged
+// on the way back up.
+//
+// Usage: java Simulator [games] [seed] [level name ...]
+// Without level names every level from levels.txt with at most MAX_DEFAULT_CELLS cells is played.
+public class Simulator {
+	static final int DEFAULT_GAMES = 1_000_000;
+	static final int MAX_DEFAULT_CELLS = 10_000;
+	// A task plays its games itself once the range is this small
+	static final int GAMES_PER_TASK = 256;
+	// Guess counts from 0 to MAX_GUESS_BUCKET - 1, the last bucket holds everything above
+	static final int MAX_GUESS_BUCKET = 10;
+	// Game times are counted in power of two nanosecond buckets
+	static final int TIME_BUCKETS = 64;
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+		List<Level> levels = new ArrayList<>();
+		for (Level level : Level.load("levels.txt")) {
+			boolean named = false;
+			for (int i = 2; i < args.length; i++) {
+				named |= args[i].equalsIgnoreCase(level.name);
+			}
+			if (args.length > 2 ? named : level.cells() <= MAX_DEFAULT_CELLS) {
+				levels.add(level);
+			}
+		}
+		if (levels.isEmpty()) {
+			System.out.println("No matching levels");
+			return;
+		}
+
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		System.out.println("Simulating " + games + " games per level on " + pool.getParallelism()
+				+ " threads, seed " + seed);
+		for (Level level : levels) {
+			long start = System.nanoTime();
+			Stats stats = pool.invoke(new Games(level, seed, 0, games));
+			long elapsed = System.nanoTime() - start;
+			stats.print(level, elapsed);
+		}
+	}
+
+	// Results of a range of games
+	static final class Stats {
+		long games;
+		long wins;
+		long guesses;
+		final long[] guessCounts = new long[MAX_GUESS_BUCKET + 1];
+		final long[] timeCounts = new long[TIME_BUCKETS];
+
+		void add(boolean won, int gameGuesses, long nanos) {
+			games++;
+			wins += won ? 1 : 0;
+			guesses += gameGuesses;
+			guessCounts[Math.min(gameGuesses, MAX_GUESS_BUCKET)]++;
+			timeCounts[TIME_BUCKETS - Long.numberOfLeadingZeros(Math.max(1, nanos))]++;
+		}
+
+		Stats merge(Stats other) {
+			games += other.games;
+			wins += other.wins;
+			guesses += other.guesses;
+			for (int i = 0; i < guessCounts.length; i++) {
+				guessCounts[i] += other.guessCounts[i];
+			}
+			for (int i = 0; i < timeCounts.length; i++) {
+				timeCounts[i] += other.timeCounts[i];
+			}
+			return this;
+		}
+
+		// Upper bound (in nanoseconds) of the time bucket holding the given fraction of the games
+		long timePercentile(double fraction) {
+			long target = (long) Math.ceil(games * fraction);
+			long seen = 0;
+			for (int i = 0; i < timeCounts.length; i++) {
+				seen += timeCounts[i];
+				if (seen >= Math.max(1, target)) {
+					return 1L << Math.min(i, 62);
+				}
+			}
+			return Long.MAX_VALUE;
+		}
+
+		void print(Level level, long elapsed) {
+			double seconds = elapsed / 1e9;
+			System.out.println();
+			System.out.println(level.name + " (" + level.rows + " x " + level.cols + ", " + level.worms + " worms): "
+					+ games + " games in " + format("%.2f", seconds) + " s, "
+					+ format("%.0f", games / seconds) + " games/s");
+			System.out.println("  win rate " + format("%.2f", percent(wins)) + " %, "
+					+ format("%.3f", (double) guesses / games) + " guesses per game");
+			StringBuilder line = new StringBuilder("  guesses:");
+			for (int i = 0; i <= MAX_GUESS_BUCKET; i++) {
+				line.append(' ').append(i).append(i == MAX_GUESS_BUCKET ? "+" : "").append(": ")
+						.append(format("%.2f", percent(guessCounts[i]))).append(" %");
+			}
+			System.out.println(line);
+			System.out.println("  time per game: p50 <= " + duration(timePercentile(0.5))
+					+ ", p90 <= " + duration(timePercentile(0.9))
+					+ ", p99 <= " + duration(timePercentile(0.99))
+					+ ", max <= " + duration(timePercentile(1)));
+			line = new StringBuilder("  time histogram:");
+			for (int i = 0; i < timeCounts.length; i++) {
+				if (timeCounts[i] > 0) {
+					line.append(" <=").append(duration(1L << Math.min(i, 62))).append(": ")
+							.append(format("%.2f", percent(timeCounts[i]))).append(" %");
+				}
+			}
+			System.out.println(line);
+		}
+
+		private double percent(long count) {
+			return games == 0 ? 0 : 100.0 * count / games;
+		}
+	}
+
+	// Plays games [from, to), splitting the range in two until it is small enough
+	static final class Games extends RecursiveTask<Stats> {
+		// ForkJoinTask is Serializable, the tasks never are serialized (so Level doesn't have to be)
+		private static final long serialVersionUID = 1L;
+
+		final transient Level level;
+		final long seed;
+		final int from;
+		final int to;
+
+		Games(Level level, long seed, int from, int to) {
+			this.level = level;
+			this.seed = seed;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override protected Stats compute() {
+			if (to - from <= GAMES_PER_TASK) {
+				Stats stats = new Stats();
+				for (int game = from; game < to; game++) {
+					play(level, new SplittableRandom(mix(seed + game)), stats);
+				}
+				return stats;
+			}
+			int middle = (from + to) >>> 1;
+			Games left = new Games(level, seed, from, middle);
+			left.fork();
+			Stats right = new Games(level, seed, middle, to).compute();
+			return left.join().merge(right);
+		}
+	}
+
+	// Play one game and add its result to stats
+	static void play(Level level, SplittableRandom random, Stats stats) {
+		long start = System.nanoTime();
+		Board board = new Board(level.rows, level.cols, level.worms);
+		board.placeWorms(random.nextLong());
+		Solver solver = new Solver(board);
+		int guesses = 0;
+		Board.Outcome outcome = board.reveal(0);
+		while (outcome != Board.Outcome.WON && outcome != Board.Outcome.WORM) {
+			int found = solver.deduce();
+			if (found > 0) {
+				for (int i = 0; i < found && outcome != Board.Outcome.WON; i++) {
+					outcome = board.reveal(solver.getSafeCell(i));
+				}
+				continue;
+			}
+			guesses++;
+			outcome = board.reveal(safestGuess(board, solver, random));
+		}
+		stats.add(outcome == Board.Outcome.WON, guesses, System.nanoTime() - start);
+	}
+
+	// The unknown cell least likely to hold a worm: a frontier cell, or a random cell away from the frontier
+	static int safestGuess(Board board, Solver solver, SplittableRandom random) {
+		Frontier frontier = new Frontier(board, solver);
+		try {
+			frontier.computeProbabilities();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		int best = -1;
+		double bestProbability = frontier.otherProbability();
+		int ties = 0;
+		for (int f = 0; f < frontier.cellCount; f++) {
+			double probability = frontier.probability[f];
+			if (probability < bestProbability - 1e-9) {
+				best = frontier.cells[f];
+				bestProbability = probability;
+				ties = 1;
+			} else if (best >= 0 && Math.abs(probability - bestProbability) <= 1e-9 && random.nextInt(++ties) == 0) {
+				best = frontier.cells[f];
+			}
+		}
+		if (best >= 0 || frontier.otherCells == 0) {
+			return best >= 0 ? best : frontier.cells[0];
+		}
+		// pick a random unknown cell away from the frontier
+		int pick = random.nextInt(frontier.otherCells);
+		for (int index = 0; index < board.size(); index++) {
+			if (solver.knownState(index) == Solver.UNKNOWN && frontier.frontierIndex[index] < 0 && pick-- == 0) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	// SplitMix64 finalizer, spreads consecutive game numbers into unrelated seeds
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private static String format(String pattern, double value) {
+		return String.format(Locale.ROOT, pattern, value);
+	}
+
+	// Nanoseconds as a short human readable duration
+	private static String duration(long nanos) {
+		if (nanos < 1_000) {
+			return nanos + " ns";
+		} else if (nanos < 1_000_000) {
+			return nanos / 1_000 + " us";
+		} else if (nanos < 1_000_000_000) {
+			return nanos / 1_000_000 + " ms";
+		}
+		return nanos / 1_000_000_000 + " s";
+	}
+}
@@ -0,0 +1,265 @@
+import java.util.Arrays;
+
+// Deterministic logic solver: deduces safe cells and worms from what the player can see on a board
+// (revealed cells and their adjacent worm counts), never from the hidden worm layout.
+// Two rules are applied until nothing new can be deduced:
+//   - single cell: a count whose worms are all found makes its other hidden neighbours safe,
+//     a count that needs all of its hidden neighbours makes them worms
+//   - subset: if the hidden neighbours of count A are a subset of those of count B,
+//     the cells only next to B hold exactly (B - A) worms
+// The rules work through a queue of counts: a count is examined again only when one of its neighbours
+// is deduced, so a deduction costs the same on any board size. deduce() stops early when its thread
+// is interrupted (the deductions made so far stay valid).
+public class Solver {
+	// Deductions about a cell
+	static final byte UNKNOWN = 0;
+	static final byte SAFE = 1;
+	static final byte WORM = 2;
+
+	// The hidden, undeduced neighbours of a revealed count and how many worms they hold
+	static final class Constraint {
+		final int[] cells = new int[8];
+		int size;
+		int need;
+
+		boolean contains(int cell) {
+			for (int k = 0; k < size; k++) {
+				if (cells[k] == cell) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		// Whether every cell of this constraint is in a larger one
+		boolean isSubsetOf(Constraint other) {
+			if (size >= other.size) {
+				return false;
+			}
+			for (int k = 0; k < size; k++) {
+				if (!other.contains(cells[k])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private final Board board;
+	private final byte[] known;
+	// Deduced safe cells that were not revealed yet when last looked at, in the order found
+	private int[] found = new int[64];
+	private int foundCount;
+	// Safe cells found by the last deduce() that are not revealed yet
+	private int[] safeCells = new int[64];
+	private int safeCount;
+
+	// Counts waiting to be examined, each at most once
+	private int[] queue;
+	private boolean[] queued;
+	private int queueSize;
+	// Constraints of the count being examined and of a count near it
+	private final Constraint constraint = new Constraint();
+	private final Constraint other = new Constraint();
+
+	public Solver(Board board) {
+		this.board = board;
+		this.known = new byte[board.size()];
+	}
+
+	// Whether every safe cell of a board can be revealed by logic, starting from firstClick.
+	// The board is played to the end (or to the first point where a guess would be needed).
+	public static boolean solvable(Board board, int firstClick) {
+		if (board.reveal(firstClick) == Board.Outcome.WORM) {
+			return false;
+		}
+		Solver solver = new Solver(board);
+		while (!board.isFinished()) {
+			int found = solver.deduce();
+			// stuck: the next move would be a guess
+			if (found == 0) {
+				return false;
+			}
+			for (int i = 0; i < found; i++) {
+				board.reveal(solver.getSafeCell(i));
+			}
+		}
+		return board.getUnrevealedSafeCells() == 0;
+	}
+
+	// Apply the rules until no new deduction is found; returns the number of safe cells ready to reveal
+	public int deduce() {
+		if (queue == null) {
+			queue = new int[board.size()];
+			queued = new boolean[board.size()];
+		}
+		// every count is examined once (cells were revealed since the last call)
+		for (int index = 0; index < known.length; index++) {
+			if (isCount(index)) {
+				enqueue(index);
+			}
+		}
+		long steps = 0;
+		while (queueSize > 0) {
+			if ((++steps & 0x3FF) == 0 && Thread.currentThread().isInterrupted()) {
+				while (queueSize > 0) {
+					queued[queue[--queueSize]] = false;
+				}
+				break;
+			}
+			int index = queue[--queueSize];
+			queued[index] = false;
+			examine(index);
+		}
+		// report every deduced safe cell that is still hidden (including ones found by earlier calls)
+		int kept = 0;
+		safeCount = 0;
+		for (int i = 0; i < foundCount; i++) {
+			int cell = found[i];
+			if (board.isRevealed(cell)) {
+				continue;
+			}
+			found[kept++] = cell;
+			if (!board.isFlagged(cell)) {
+				if (safeCount == safeCells.length) {
+					safeCells = Arrays.copyOf(safeCells, safeCount * 2);
+				}
+				safeCells[safeCount++] = cell;
+			}
+		}
+		foundCount = kept;
+		return safeCount;
+	}
+
+	public int getSafeCell(int i) {
+		return safeCells[i];
+	}
+
+	// What the solver knows about a cell: SAFE, WORM or UNKNOWN
+	public byte knownState(int index) {
+		if (board.isRevealed(index)) {
+			return board.hasWorm(index) ? WORM : SAFE;
+		}
+		return known[index];
+	}
+
+	// Number of hidden cells whose state has been deduced as a worm
+	public int knownWorms() {
+		int count = 0;
+		for (int i = 0; i < known.length; i++) {
+			if (known[i] == WORM && !board.isRevealed(i)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	// Apply both rules to a count: the single cell rule, then the subset rule with every count at most
+	// two cells away (the only ones that can share cells with it)
+	private void examine(int index) {
+		if (!load(index, constraint)) {
+			return;
+		}
+		if (constraint.need == 0 || constraint.need == constraint.size) {
+			byte state = constraint.need == 0 ? SAFE : WORM;
+			for (int k = 0; k < constraint.size; k++) {
+				mark(constraint.cells[k], state);
+			}
+			return;
+		}
+		int row = index / board.cols;
+		int col = index % board.cols;
+		for (int r = Math.max(0, row - 2); r <= Math.min(board.rows - 1, row + 2); r++) {
+			for (int c = Math.max(0, col - 2); c <= Math.min(board.cols - 1, col + 2); c++) {
+				int near = r * board.cols + c;
+				if (near == index || !isCount(near) || !load(near, other)) {
+					continue;
+				}
+				if (constraint.isSubsetOf(other)) {
+					// the cells outside this count's constraint aren't its neighbours, it stays valid
+					applySubset(constraint, other);
+				} else if (other.isSubsetOf(constraint) && applySubset(other, constraint)) {
+					// this count's constraint changed, it is queued again
+					return;
+				}
+			}
+		}
+	}
+
+	// The cells of larger outside smaller hold the remaining worms of larger; returns true if any was marked
+	private boolean applySubset(Constraint smaller, Constraint larger) {
+		int extraWorms = larger.need - smaller.need;
+		int extraCells = larger.size - smaller.size;
+		if (extraWorms != 0 && extraWorms != extraCells) {
+			return false;
+		}
+		byte state = extraWorms == 0 ? SAFE : WORM;
+		boolean progress = false;
+		for (int k = 0; k < larger.size; k++) {
+			int cell = larger.cells[k];
+			if (!smaller.contains(cell)) {
+				progress |= mark(cell, state);
+			}
+		}
+		return progress;
+	}
+
+	// Collect the constraint of a revealed count; returns false if it has no undeduced hidden neighbours
+	private boolean load(int index, Constraint into) {
+		int row = index / board.cols;
+		int col = index % board.cols;
+		int need = board.adjacentWorms(index);
+		int count = 0;
+		for (int r = Math.max(0, row - 1); r <= Math.min(board.rows - 1, row + 1); r++) {
+			for (int c = Math.max(0, col - 1); c <= Math.min(board.cols - 1, col + 1); c++) {
+				int next = r * board.cols + c;
+				byte state = knownState(next);
+				if (state == WORM) {
+					need--;
+				} else if (state == UNKNOWN) {
+					into.cells[count++] = next;
+				}
+			}
+		}
+		into.size = count;
+		into.need = need;
+		return count > 0;
+	}
+
+	// A revealed cell with a worm count, the only cells that give constraints
+	private boolean isCount(int index) {
+		return board.isRevealed(index) && !board.hasWorm(index) && board.adjacentWorms(index) > 0;
+	}
+
+	private void enqueue(int index) {
+		if (!queued[index]) {
+			queued[index] = true;
+			queue[queueSize++] = index;
+		}
+	}
+
+	// Record a deduction and queue the counts around the cell, whose constraints just changed
+	private boolean mark(int cell, byte state) {
+		if (known[cell] == state) {
+			return false;
+		}
+		known[cell] = state;
+		if (state == SAFE) {
+			if (foundCount == found.length) {
+				found = Arrays.copyOf(found, foundCount * 2);
+			}
+			found[foundCount++] = cell;
+		}
+		int row = cell / board.cols;
+		int col = cell % board.cols;
+		for (int r = Math.max(0, row - 1); r <= Math.min(board.rows - 1, row + 1); r++) {
+			for (int c = Math.max(0, col - 1); c <= Math.min(board.cols - 1, col + 1); c++) {
+				int next = r * board.cols + c;
+				if (isCount(next)) {
+					enqueue(next);
+				}
+			}
+		}
+		return true;
+	}
+}
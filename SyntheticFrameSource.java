@@ -0,0 +1,71 @@
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import org.bytedeco.javacv.Frame;
+
+// Generated BGR frames: a dull, noisy background with a red square that moves across the picture
+// during the first half of every PERIOD frames and is absent during the second half.
+// Needs no camera and no native OpenCV calls, so it also runs on headless build machines.
+public class SyntheticFrameSource implements FrameSource {
+	// Frames per cycle of red / no red
+	static final int PERIOD = 120;
+	// Color of the red square (BGR), hue 172 in OpenCV HSV
+	static final byte[] RED = {60, 0, (byte) 220};
+
+	private final int width;
+	private final int height;
+	private final long seed;
+	// Background pixels, copied into the frame before the square is drawn
+	private byte[] background;
+	private Frame frame;
+	private long count;
+
+	public SyntheticFrameSource(int width, int height, long seed) {
+		this.width = width;
+		this.height = height;
+		this.seed = seed;
+	}
+
+	@Override public void start() {
+		frame = new Frame(width, height, Frame.DEPTH_UBYTE, 3);
+		background = new byte[frame.imageStride * height];
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int i = 0; i < background.length; i++) {
+			// grey-green noise, far from red
+			background[i] = (byte) (60 + random.nextInt(40) + (i % 3 == 1 ? 30 : 0));
+		}
+	}
+
+	// The next frame; the same Frame object is refilled on every call
+	@Override public Frame grab() {
+		ByteBuffer pixels = (ByteBuffer) frame.image[0];
+		pixels.clear();
+		pixels.put(background);
+		int phase = (int) (count++ % PERIOD);
+		if (phase < PERIOD / 2) {
+			// a square of a quarter of the height moving from left to right
+			int size = Math.max(1, height / 4);
+			int left = (width - size) * phase / (PERIOD / 2);
+			int top = (height - size) / 2;
+			for (int y = top; y < top + size; y++) {
+				for (int x = left; x < left + size; x++) {
+					pixels.put(y * frame.imageStride + x * 3, RED);
+				}
+			}
+		}
+		pixels.rewind();
+		return frame;
+	}
+
+	// Whether the last frame grabbed shows the red square
+	public boolean lastFrameHasRed() {
+		return (count - 1) % PERIOD < PERIOD / 2;
+	}
+
+	@Override public void close() {
+		if (frame != null) {
+			frame.close();
+			frame = null;
+		}
+	}
+}
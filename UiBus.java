@@ -0,0 +1,101 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.control.Labeled;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+// Collects changes to controls from any thread and applies them once per JavaFX pulse.
+// Every kind of change is kept per control, so when a control is changed several times before the next
+// pulse only the last value is applied (last write wins). A big cascade reveal or a 30 fps camera stream
+// then costs one scene update per pulse instead of one runnable per change.
+// Reading a control still shows its old value until the next pulse, so state the game logic depends on
+// belongs in the game objects (Board etc.), not in the controls.
+public class UiBus {
+	// Stands for null in the maps, which can't hold null values
+	private static final Object NONE = new Object();
+
+	private final Map<Labeled, String> texts = new ConcurrentHashMap<>();
+	private final Map<Node, String> styles = new ConcurrentHashMap<>();
+	private final Map<Node, Boolean> disabled = new ConcurrentHashMap<>();
+	private final Map<Labeled, Object> graphics = new ConcurrentHashMap<>();
+	private final Map<ImageView, Object> images = new ConcurrentHashMap<>();
+	// Any other change, by whatever key the caller chooses
+	private final Map<Object, Runnable> actions = new ConcurrentHashMap<>();
+	// Set when any map has an entry, so idle pulses cost nothing
+	private final AtomicBoolean dirty = new AtomicBoolean();
+	private final AnimationTimer timer = new AnimationTimer() {
+		@Override public void handle(long now) {
+			flush();
+		}
+	};
+
+	// Start applying changes on every pulse
+	public void start() {
+		timer.start();
+	}
+
+	public void stop() {
+		timer.stop();
+	}
+
+	public void setText(Labeled control, String text) {
+		texts.put(control, text);
+		dirty.set(true);
+	}
+
+	public void setStyle(Node node, String style) {
+		styles.put(node, style);
+		dirty.set(true);
+	}
+
+	public void setDisable(Node node, boolean disable) {
+		disabled.put(node, disable);
+		dirty.set(true);
+	}
+
+	public void setGraphic(Labeled control, Node graphic) {
+		graphics.put(control, graphic == null ? NONE : graphic);
+		dirty.set(true);
+	}
+
+	public void setImage(ImageView view, Image image) {
+		images.put(view, image == null ? NONE : image);
+		dirty.set(true);
+	}
+
+	// Run an update on the next pulse, replacing an update with the same key that hasn't run yet
+	public void run(Object key, Runnable update) {
+		actions.put(key, update);
+		dirty.set(true);
+	}
+
+	// Apply every pending change now; JavaFX application thread only
+	public void flush() {
+		if (!dirty.getAndSet(false)) {
+			return;
+		}
+		drain(texts, Labeled::setText);
+		drain(styles, Node::setStyle);
+		drain(graphics, (control, graphic) -> control.setGraphic(graphic == NONE ? null : (Node) graphic));
+		drain(disabled, Node::setDisable);
+		drain(images, (view, image) -> view.setImage(image == NONE ? null : (Image) image));
+		drain(actions, (key, update) -> update.run());
+	}
+
+	// Apply and remove every entry of a map. An entry changed by another thread meanwhile stays for the
+	// next pulse, so a newer value is never lost.
+	private static <K, V> void drain(Map<K, V> map, BiConsumer<K, V> apply) {
+		for (Map.Entry<K, V> entry : map.entrySet()) {
+			K key = entry.getKey();
+			V value = entry.getValue();
+			if (map.remove(key, value)) {
+				apply.accept(key, value);
+			}
+		}
+	}
+}
@@ -1,7 +1,11 @@
-import java.util.concurrent.Executors; 
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.OptionalLong;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
@@ -20,10 +24,10 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
 import javafx.scene.control.Tooltip;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.ClipboardContent;
 import javafx.scene.input.MouseButton;
@@ -40,12 +44,6 @@ import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
 import javafx.util.Duration;
 
-import org.bytedeco.javacv.Frame;
-import org.bytedeco.javacv.JavaFXFrameConverter;
-import org.bytedeco.javacv.OpenCVFrameConverter;
-import org.bytedeco.javacv.OpenCVFrameGrabber;
-import org.bytedeco.opencv.global.opencv_core;
-import org.bytedeco.opencv.global.opencv_imgproc; 
 
 
 public class WormSweeper extends Application {
@@ -54,39 +52,66 @@ public class WormSweeper extends Application {
  	IntegerProperty timeSeconds;
     boolean timeStarted;
     
+    // Boards wider or taller than this are drawn on the canvas field instead of with buttons
+    static final int MAX_BUTTON_GRID = 15;
+    // Time allowed to find a board that needs no guessing before falling back to a random board
+    static final long NO_GUESS_TIMEOUT_MS = 500;
+    // Time the Apply button waits for the hint analysis before falling back to a random worm
+    static final long HINT_WAIT_MS = 200;
+    // Frames for the hint dialog: the built in webcam unless -Dwormsweeper.camera names another
+    // camera number, "synthetic" or a directory of recorded frames (see FrameSource.open)
+    static final String CAMERA_SOURCE = System.getProperty("wormsweeper.camera", "");
+    
     // Declare game play variables
-    int gridSize;
-	int wormsTotal;
- 	int hooksTotal;
- 	int unrevealedSafeCells;
- 	ButtonStatus[] btnStatus;
+    List<Level> levels;
+    Level level;
+	// Headless board that holds the cell states and game rules
+ 	Board board;
+ 	// Cells changed by the last move, reused for every move (see Board.applyMoves())
+ 	CellDiff changes = new CellDiff();
+ 	int[] oneMove = new int[1];
+ 	// False until the worms are placed; no-guess boards are generated on the first click
+ 	boolean wormsPlaced;
+ 	NoGuessGenerator noGuessGenerator = new NoGuessGenerator(ForkJoinPool.commonPool());
+ 	// Picks the hint in the background after every move
+ 	HintEngine hintEngine = new HintEngine();
+ 	// Keeps the game in progress on disk so it can be resumed, null while nothing is saved
+ 	SaveFile saveFile;
+ 	Path savePath = SaveFile.defaultPath();
+ 	// Records every game and move for replaying them later, null if the journal can't be written
+ 	MoveJournal journal;
+ 	// Won games and ranks, read from disk in the background at startup
+ 	CompletableFuture<Leaderboard> leaderboard = CompletableFuture.supplyAsync(() -> Leaderboard.load(Leaderboard.defaultPath()));
 
  	// Declare some GUI variables at class level
  	VBox mainPane;
+ 	VBox fieldPane;
 	GridPane appleField;
+	ButtonField buttonField;
+	CanvasField canvasField;
 	Label hookCountLabel;
 	Button hints;
+	CheckBox noGuessBox;
 	ImageView cameraView;
 	ImageView hookImgView;
 	Dialog<String> unlockHintDialog;
 	Label instruction;
+	// Applies control changes once per pulse, last write wins
+	UiBus uiBus = new UiBus();
 	
 	// Declare camera/JavaCV variables
- 	OpenCVFrameGrabber grabber;
- 	ScheduledExecutorService cameraExecutor;
+ 	// Opens the camera in the background and keeps it open for a while after the dialog closes
+ 	CameraManager camera = new CameraManager(CAMERA_SOURCE, 160, 120);
+ 	CaptureLoop captureLoop;
+ 	// Completes once the capture thread of the last session has exited and its resources are released
+ 	CompletableFuture<Void> captureStopped = CompletableFuture.completedFuture(null);
+ 	// Reusable frame buffers of the running camera session
+ 	FramePipeline framePipeline;
     boolean isCameraRunning;
+    // Counts dialog camera sessions; time the current one was requested (0 once it showed a frame)
+    int cameraSession;
+    long cameraRequestedAt;
 
-    
-    // Define button (cell) status in enum
-    private enum ButtonStatus {
-        UNREVEALED_SAFE,      // 0: Unrevealed, but safe
-        UNREVEALED_UNSAFE,    // 1: Unrevealed, but unsafe (has a worm)
-        REVEALED_SAFE,        // 2: Revealed, and safe
-        REVEALED_UNSAFE, 	  // 3: Revealed, and unsafe (a worm was clicked)
-        FLAGGED_SAFE,  		  // 4: Flagged, and safe
-        FLAGGED_UNSAFE        // 5: Flagged, and unsafe (has a worm)
-        
-    }
  	@Override
 	public void start(Stage stage) throws Exception
 	{
@@ -95,12 +120,21 @@ public class WormSweeper extends Application {
 	 	timeSeconds = new SimpleIntegerProperty(0); //reset time to 0
 	    timeStarted = false; //timer is off at first
 	    
-	    // Initialize game play variables to a basic level game
-	    gridSize = 10; //10x10 grid
-		wormsTotal = 10;// these are "mines"
-	 	hooksTotal = 10; //these are "flags"
-	 	unrevealedSafeCells = 90; //total cells without worms
-	 	btnStatus = new ButtonStatus[gridSize * gridSize];
+	    // Decode the pictures in the background while the rest starts up
+	    Assets.preload();
+	    // Publish the hot path histograms over JMX and in a snapshot file
+	    Metrics.start(Metrics.defaultPath());
+
+	    // Read the level definitions and start with the first (basic) level
+	    levels = Level.load("levels.txt");
+	    level = levels.get(0);
+	    // Append this session's games to the move journal
+	    try {
+	    	journal = new MoveJournal(MoveJournal.defaultPath());
+	    } catch (IOException e) {
+	    	// error condition
+	    	System.out.println("Failed to open the move journal: " + e.getMessage());
+	    }
 	 	
 	 	// Initialize random worm placement for a new basic level game
 	    placeWorms();
@@ -121,6 +155,15 @@ public class WormSweeper extends Application {
 		
 		//We initialize the User Interface (UI) of the application
 		initGUI(mainPane);
+		// apply queued control changes on every pulse
+		uiBus.start();
+		// continue the game that was running when the program was closed, or save the new one
+		if (!resumeSavedGame()) {
+			journalNewGame();
+			startSaving();
+		}
+		// start looking for a hint for the first position
+		refreshHint();
 		
 		//We give a title to our stage
 		stage.setTitle("wormSweeper");
@@ -130,6 +173,8 @@ public class WormSweeper extends Application {
 		
 		//We display the stage
 		stage.show();
+		// the camera libraries load in the background once the board is on screen
+		camera.preloadNatives();
 	}
  	
  	// All GUI elements
@@ -144,50 +189,31 @@ public class WormSweeper extends Application {
 		paneLevel.setAlignment(Pos.CENTER_LEFT); // aligned to the left
 		mainPane.getChildren().add(paneLevel); // add it to our mainPane
 		
-		// load apple pictures for the level buttons 
-		Image imageRedApple = new Image(getClass().getResourceAsStream("redapple.png"));
-		Image imageGreenApple = new Image(getClass().getResourceAsStream("greenapple.png"));
-		// put apple pictures into imageView and change size
-		// red apple is for basic level
-		ImageView redAppleView = new ImageView(imageRedApple);
-		redAppleView.setFitWidth(30);  
-		redAppleView.setFitHeight(30); 
-		// green apple is for advanced level
-		ImageView greenAppleView = new ImageView(imageGreenApple);
-		greenAppleView.setFitWidth(30); 
-		greenAppleView.setFitHeight(30); 
-		
-		//Create a button for the basic level with red apple icon
-		Button levelBasic = new Button("Basic", redAppleView);
-		// if the basic button is pressed, trigger game restart in basic level
-		levelBasic.setOnAction(new EventHandler<ActionEvent>() {
-			@Override public void handle(ActionEvent e) {
-				// basic level has 10x10 grid, 10 worms and 90 safe cells
-				resetGame(10,10,90);
+		// Create a button for every level definition
+		for (Level levelDef : levels) {
+			Button levelBtn = new Button(levelDef.name);
+			// levels with an icon show their apple picture (red for basic, green for advanced)
+			if (levelDef.icon != null) {
+				ImageView iconView = Assets.view(levelDef.icon, Assets.ICON_SIZE);
+				iconView.setFitWidth(30);  
+				iconView.setFitHeight(30); 
+				levelBtn.setGraphic(iconView);
 			}
-		});
-		// Create a Tooltip for the basic button displaying info about the level
-        Tooltip basicToolTip = new Tooltip("10 x 10 grid\n 10 worms");
-        // Attach the Tooltip to the basic level button
-        Tooltip.install(levelBasic, basicToolTip);
-        
-		//Create a button for the advanced level with green apple icon
-		Button levelAdvanced = new Button("Advanced", greenAppleView);
-		// if the advanced button is pressed, trigger game restart in advanced level
-		levelAdvanced.setOnAction(new EventHandler<ActionEvent>() {
-			@Override public void handle(ActionEvent e) {
-				// advanced level has 15x15 grid, 30 worms and 195 safe cells
-				resetGame(15,30,195);
-			}
-		});
-		// Create a Tooltip for the basic button displaying info about the level
-        Tooltip advToolTip = new Tooltip("15 x 15 grid\n 30 worms");
-        // Attach the Tooltip to the basic level button
-        Tooltip.install(levelAdvanced, advToolTip);
-
-		//add the level buttons to the top layout panel
-		paneLevel.getChildren().add(levelBasic);
-		paneLevel.getChildren().add(levelAdvanced);
+			// if the level button is pressed, trigger game restart in that level
+			levelBtn.setOnAction(new EventHandler<ActionEvent>() {
+				@Override public void handle(ActionEvent e) {
+					resetGame(levelDef);
+				}
+			});
+			// Create a Tooltip displaying info about the level and attach it to the button
+	        Tooltip.install(levelBtn, new Tooltip(levelDef.describe()));
+			//add the level button to the top layout panel
+			paneLevel.getChildren().add(levelBtn);
+		}
+		// Check box for boards that can be solved without guessing (from the next new game)
+		noGuessBox = new CheckBox("No guessing");
+        Tooltip.install(noGuessBox, new Tooltip("New games can be solved by logic alone\n(levels up to 15 x 15)"));
+		paneLevel.getChildren().add(noGuessBox);
 		
 		/* 
 		 2. timer pane that contains the stem, leaf and timer
@@ -229,18 +255,30 @@ public class WormSweeper extends Application {
 
         
 		/* 3. middle pane for gameplay */
+        // The field pane holds either the button grid or the canvas field, depending on the board size
+        fieldPane = new VBox();
+        fieldPane.setAlignment(Pos.CENTER); // set position
         // Initialize a new GridPane
 		appleField = new GridPane();
 		appleField.setPadding(new Insets(0,5,0,5)); // set padding
 		appleField.setAlignment(Pos.CENTER); // set position
+		// Initialize the canvas field for large boards, sized like a full 15x15 button grid
+		buttonField = new ButtonField(appleField, uiBus);
+		canvasField = new CanvasField();
+		canvasField.setPrefSize(MAX_BUTTON_GRID * 40, MAX_BUTTON_GRID * 40);
+		canvasField.setOnReveal(index -> cellClicked(index));
+		canvasField.setOnHook(index -> placeHook(index));
+		canvasField.setOnUnhook(index -> removeHook(index));
+		// one handler per event type for all cell buttons
+		initFieldEvents();
 	    // initialize a hook count label
         hookCountLabel = new Label();
         
-        // fills the apple field with buttons and set the button actions
+        // fills the apple field with buttons
         reDraw();
         
 	    // add the gameplay field to the mainPane
-	    mainPane.getChildren().add(appleField);
+	    mainPane.getChildren().add(fieldPane);
 	
 		/* 
 		 4. Hook count pane for hook count display 
@@ -251,15 +289,13 @@ public class WormSweeper extends Application {
 		mainPane.getChildren().add(paneHookCount); //add it to main pane
 		
 		// this label displays the hooks left
-		hookCountLabel.setText(String.valueOf(hooksTotal));
+		hookCountLabel.setText(String.valueOf(board.getHooksLeft()));
 		hookCountLabel.setStyle("-fx-font-size: 15px;");	//set font size
 		// add it to the hook count pane
 		paneHookCount.getChildren().add(hookCountLabel);
 			
-		// load hook picture
-		Image imageHook = new Image(getClass().getResourceAsStream("hook.png"));
-		// create a hook image view and set its size
-		hookImgView = new ImageView(imageHook);
+		// create a hook image view of the shared hook picture and set its size
+		hookImgView = Assets.view("hook.png", Assets.ICON_SIZE);
 		hookImgView.setFitWidth(30);  
 		hookImgView.setFitHeight(30); 
 		// add it to the bottom pane
@@ -268,7 +304,7 @@ public class WormSweeper extends Application {
 		// Set draggable event for the hook imageView
 		hookImgView.setOnDragDetected(event -> {
 			// if there are no hooks left
-			if (hooksTotal == 0) {
+			if (board.getHooksLeft() == 0) {
                 System.out.println("Max hook count reached. Cannot drag more hooks.");
                 // Prevent dragging if max hook count is reached
                 return; 
@@ -316,135 +352,153 @@ public class WormSweeper extends Application {
 				unlockHintDialog();
 			}	
 		});
+    	// open the camera as soon as the player points at the button, so the dialog shows frames right away
+    	hints.setOnMouseEntered(event -> camera.prewarm());
     	// add this button to the hint panel
     	hintPanel.getChildren().add(hints);
 	}
     
-    // Refill the appleField with buttons and set actions
+    // Event handlers of the button field: the events of every cell button bubble up to the appleField,
+    // which finds the cell from the button the event happened on
+    private void initFieldEvents() {
+    	// a cell button was pressed: reveal the cell
+    	appleField.addEventHandler(ActionEvent.ACTION, event -> {
+    		int index = cellIndexOf(event.getTarget());
+    		if (index >= 0) {
+    			cellClicked(index);
+    		}
+    	});
+    	// something is dragged over the field: accept the hook image
+    	appleField.setOnDragOver(event -> {
+    		if (event.getDragboard().hasImage() && cellIndexOf(event.getPickResult().getIntersectedNode()) >= 0) {
+    			// Accept the drag if the drag mode is "MOVE" (i.e., the user is moving the image)
+    			event.acceptTransferModes(TransferMode.MOVE);
+    		}
+    		// Consume the event so that it doesn't propagate to other event handlers
+    		event.consume();
+    	});
+    	// the hook is dropped on the field: place it on the cell under the pointer
+    	appleField.setOnDragDropped(event -> {
+    		int index = cellIndexOf(event.getPickResult().getIntersectedNode());
+    		// place the hook on the board if the cell doesn't already have one
+    		if (index >= 0 && event.getDragboard().hasImage() && placeHook(index)) {
+    			// Mark the drag-and-drop as complete
+    			event.setDropCompleted(true);
+    		} else {
+    			// indicate unsuccessful drop
+    			event.setDropCompleted(false);
+    		}
+    		event.consume();
+    	});
+    	// right click on a cell removes its hook
+    	appleField.setOnMouseClicked(event -> {
+    		if (event.getButton() == MouseButton.SECONDARY) {
+    			int index = cellIndexOf(event.getPickResult().getIntersectedNode());
+    			// if there is a hook on the cell, remove it from the board
+    			if (index >= 0) {
+    				removeHook(index);
+    			}
+    		}
+    	});
+    }
+
+    // Board index of the cell button a node belongs to (the button itself or its text or picture), or -1
+    private int cellIndexOf(Object target) {
+    	Node node = target instanceof Node ? (Node) target : null;
+    	while (node != null && node != appleField) {
+    		if (node.getUserData() instanceof Integer) {
+    			return (Integer) node.getUserData();
+    		}
+    		node = node.getParent();
+    	}
+    	return -1;
+    }
+
+    // Show the new board on the field that fits it: the buttons, or the canvas for large boards
     private void reDraw() {
-    	// redraw the playing field in 10x10 or 15x15
-    	 		for (int i = 0; i < gridSize; i++) {
-    	 			for (int j = 0; j < gridSize; j++) {
-    	 				// Create a button
-    	 				Button appleFieldBtn = new Button();
-    	 				// Set the index of the button
-    	 				GridPane.setRowIndex(appleFieldBtn, i);
-    	 				GridPane.setColumnIndex(appleFieldBtn, j);
-    	 	
-    	 				// Set a fixed size to make buttons square
-    	 				appleFieldBtn.setPrefWidth(40);  
-    	 				appleFieldBtn.setPrefHeight(40);
-    	 				// Set the button style (color, border, etc)
-    	 				appleFieldBtn.setStyle("-fx-background-color: maroon; -fx-text-fill: white; " +
-    	                         "-fx-border-color: white; -fx-border-width: 1px; " +
-    	                         "-fx-border-style: solid;");
-    	 				
-    	 				// removes the color from the buttons, after clicking on them
-    	 				appleFieldBtn.setFocusTraversable(false);
+    	long start = System.nanoTime();
+    	fieldPane.getChildren().setAll(useCanvas() ? canvasField : appleField);
+    	fieldRenderer().showBoard(board);
+    	Metrics.REDRAW_NANOS.recordSince(start);
+	}
 
-    	 				// adds an event handler for the button
-    	 				appleFieldBtn.setOnAction(new EventHandler<ActionEvent>() {
-    	 					// handles the action when the button is clicked
-    	 					@Override public void handle(ActionEvent e) {
-    	 						// if timer has not started
-    	 						if (!timeStarted) {
-    	 							// start the timer
-    	 							startTimer();
-    	 						}
-    	 						// gets the row index of the clicked button
-    	 						int btnIndexRow = GridPane.getRowIndex(appleFieldBtn);
-    	 						// gets the column index of the clicked button
-    	 						int btnIndexCol = GridPane.getColumnIndex(appleFieldBtn);
-    	 	
-    	 						// calls the revealCell() method to reveal content of this button cell 
-    	 						revealCell(appleFieldBtn, btnIndexRow, btnIndexCol);
-    	 						}
-    	 					});
-    	 				//  event handler for if something is dragged over the button
-    	 				appleFieldBtn.setOnDragOver(event -> {
-    	 					// Check if the source of the drag event is not from the button itself 
-    	 				    // and if the data being dragged contains an image
-    	 			        if (event.getGestureSource() != appleFieldBtn && event.getDragboard().hasImage()) {
-    	 			        	// Accept the drag if the drag mode is "MOVE" (i.e., the user is moving the image)
-    	 			        	event.acceptTransferModes(TransferMode.MOVE);
-    	 			        }
-    	 			        // Consume the event so that it doesn't propagate to other event handlers
-    	 			        event.consume();
-    	 			    });
-    	 				// event handler if something is drag dropped on the button
-    	 				appleFieldBtn.setOnDragDropped(event -> {
-    	 					// if the dragged data is an image
-    	 			        if (event.getDragboard().hasImage()) {
-    	 			        	// Generate a new ImageView to duplicate the hook image
-    	 			            ImageView flagImageView = new ImageView(event.getDragboard().getImage());
-    	 			            // Set size of the hook image to be placed in the square
-    	 			            flagImageView.setFitWidth(20);  
-    	 			            flagImageView.setFitHeight(20);
-    	 			            // if the button doesn't already have a hook
-    	 			            if (appleFieldBtn.getGraphic() == null) {
-    	 			            	// display the hook on the button
-    	 				            appleFieldBtn.setGraphic(flagImageView);
-    	 				            // Compute the 1D index of the button from 2D
-    	 				            int index = GridPane.getRowIndex(appleFieldBtn) * gridSize + GridPane.getColumnIndex(appleFieldBtn);
-    	 			            	// if the button was unrevealed and safe
-    	 				            if (btnStatus[index] == ButtonStatus.UNREVEALED_SAFE) {
-    	 				            	// set it to flagged and safe
-    	 				            	btnStatus[index] = ButtonStatus.FLAGGED_SAFE;
-    	 				            }
-    	 				            // if it is unrevealed and unsafe
-    	 				            else if (btnStatus[index] == ButtonStatus.UNREVEALED_UNSAFE){ 
-    	 				            	// set it to flagged and unsafe
-    	 				            	btnStatus[index] = ButtonStatus.FLAGGED_UNSAFE;
+    // The field the current board is shown on
+    private FieldRenderer fieldRenderer() {
+    	return useCanvas() ? canvasField : buttonField;
+    }
 
-    	 				            }
-    	 				            // Mark the drag-and-drop as complete
-    	 				            event.setDropCompleted(true);  
-    	 				            // Decrement the hooks left
-    	 				            hooksTotal -= 1;
-    	 				            // Update the hooks left label on the screen
-    	 				    		hookCountLabel.setText(String.valueOf(hooksTotal));
-    	 			            }			         
-    	 			        } else { // if there is no image being dragged
-    	 			        	// indicate unsuccessful drop
-    	 			            event.setDropCompleted(false); 
-    	 			        }
-    	 			        // Consume the event so that it doesn't propagate to other event handlers
-    	 			        event.consume();
-    	 			    });
-    	 				// event handler for mouse click on the button
-    	 				appleFieldBtn.setOnMouseClicked(event -> {
-    	 					// Check for right-click
-    	 			        if (event.getButton() == MouseButton.SECONDARY) {  
-    	 			            // if there is an image on the button
-    	 			            if (appleFieldBtn.getGraphic() != null) {
-    	 			                // Remove the image by setting the graphic to null
-    	 			            	appleFieldBtn.setGraphic(null);
-    	 				            // Compute the 1D index of the button from 2D
-    	 			            	int index = GridPane.getRowIndex(appleFieldBtn) * gridSize + GridPane.getColumnIndex(appleFieldBtn);
-    	 			            	// if the button was flagged and safe
-    	 			            	if (btnStatus[index] == ButtonStatus.FLAGGED_SAFE) {
-    	 			            		// change its status to unrevealed and safe
-    	 				            	btnStatus[index] = ButtonStatus.UNREVEALED_SAFE;
-    	 				            }
-    	 			            	// if it is flagged and unsafe
-    	 				            else if (btnStatus[index] == ButtonStatus.FLAGGED_UNSAFE){
-    	 				            	// otherwise, change its status to unrevealed and unsafe
-    	 				            	btnStatus[index] = ButtonStatus.UNREVEALED_UNSAFE;
+    // Apply one move to the board and show and save only the cells it changed
+    private Board.Outcome play(int kind, int index) {
+    	oneMove[0] = Board.move(kind, index);
+    	Board.Outcome outcome = board.applyMoves(oneMove, 0, 1, changes);
+    	if (changes.size() > 0) {
+    		fieldRenderer().showChanges(board, changes);
+    		if (saveFile != null) {
+    			saveFile.changed(changes);
+    		}
+    	}
+    	return outcome;
+    }
 
-    	 				            }
-    	 			            	// increment the hooks left
-    	 			            	hooksTotal += 1;
-    	 			            	// update the hooks left label
-    	 			        		hookCountLabel.setText(String.valueOf(hooksTotal));
-    	 			            }
-    	 			        }
-    	 			    });
-    	 				// adds the button to the field
-    	 				appleField.getChildren().add(appleFieldBtn);
-    	 			}
-    	 		}
-		
-	}
+    // Whether the current level is too large for the button grid
+    private boolean useCanvas() {
+    	return level.rows > MAX_BUTTON_GRID || level.cols > MAX_BUTTON_GRID;
+    }
+    
+    // Function that handles a click on a cell of either field
+    private void cellClicked(int index) {
+    	// if timer has not started
+		if (!timeStarted) {
+			// start the timer
+			startTimer();
+		}
+		// a hooked or revealed cell isn't revealed: no board is generated around it and no move is recorded
+		if (board.isFlagged(index) || board.isRevealed(index) || board.isFinished()) {
+			return;
+		}
+		// a no-guess board is generated around the first clicked cell
+		if (!wormsPlaced) {
+			placeNoGuessWorms(index);
+		}
+		recordMove(MoveJournal.REVEAL, index);
+		// calls the revealCell() method to reveal content of this cell 
+		revealCell(index);
+    }
+    
+    // Function that places a hook on a cell; returns false if no hook was placed
+    private boolean placeHook(int index) {
+    	if (play(Board.FLAG_MOVE, index) == Board.Outcome.IGNORED) {
+    		return false;
+    	}
+    	recordMove(MoveJournal.HOOK, index);
+    	// Update the hooks left label on the screen
+    	uiBus.setText(hookCountLabel, String.valueOf(board.getHooksLeft()));
+    	refreshHint();
+    	return true;
+    }
+    
+    // Function that removes a hook from a cell; returns false if the cell had no hook
+    private boolean removeHook(int index) {
+    	if (play(Board.UNFLAG_MOVE, index) == Board.Outcome.IGNORED) {
+    		return false;
+    	}
+    	recordMove(MoveJournal.UNHOOK, index);
+    	// update the hooks left label
+    	uiBus.setText(hookCountLabel, String.valueOf(board.getHooksLeft()));
+    	refreshHint();
+    	return true;
+    }
+
+    // Restart the hint analysis for the current position (only while the hint is still unused).
+    // Canvas sized boards are not analysed: copying the board and analysing it takes longer than a move,
+    // so their hint is a random worm.
+    private void refreshHint() {
+    	if (!hints.isDisable() && wormsPlaced && !board.isFinished() && !useCanvas()) {
+    		hintEngine.analyze(board);
+    	} else {
+    		hintEngine.cancel();
+    	}
+    }
 
 	// Function that starts the timer
     private void startTimer() {
@@ -458,6 +512,9 @@ public class WormSweeper extends Application {
 	                int currentTime = timeSeconds.get();
 	                // then increment the current time by 1 second 
 	                timeSeconds.set(currentTime + 1);
+	                if (saveFile != null) {
+	                	saveFile.setElapsedSeconds(currentTime + 1);
+	                }
 	            })
 	        );
     	// set the timeline to play indefinitely
@@ -469,7 +526,10 @@ public class WormSweeper extends Application {
 
     }
     // Function that redraws the playing field and resets variables for a new game
-    private void resetGame(int gridNum, int wormNum, int safecellNum) {
+    private void resetGame(Level newLevel) {
+    	long start = System.nanoTime();
+    	GameEvents.Reset resetEvent = new GameEvents.Reset();
+    	resetEvent.begin();
     	// Turn the timer status off
 	    timeStarted = false;
 	    // Safety measure: turn the timer off if it was running
@@ -479,25 +539,30 @@ public class WormSweeper extends Application {
 	    // Reset the time to the 0
         timeSeconds.set(0);  
         
-    	// Reset game play variables for basic/advanced
-    	gridSize = gridNum;
-		wormsTotal = wormNum;
-		hooksTotal = wormNum;
-		unrevealedSafeCells = safecellNum;
+    	// Switch to the new level
+    	level = newLevel;
 		
+	    // Create a new board for the level and place the worms randomly
+     	placeWorms();
+     	journalNewGame();
 		// Turn the unlock hints button on
 		hints.setDisable(false);
+		// save the new game from now on
+		startSaving();
 		// set the total hook count back 
-     	hookCountLabel.setText(String.valueOf(hooksTotal));
-		// Clear all the button cells
-		appleField.getChildren().clear();
-		
-		// Initialize a new empty btnStatus list according to the level
-	    btnStatus = new ButtonStatus[gridSize * gridSize];
-	    // place the worms randomly
-     	placeWorms();
-     	// Refill the appleField with buttons and set the button actions
+     	uiBus.setText(hookCountLabel, String.valueOf(board.getHooksLeft()));
+     	// Reset the button cells (the buttons are reused)
      	reDraw();
+     	// start looking for a hint for the new game
+     	refreshHint();
+     	Metrics.RESET_NANOS.recordSince(start);
+     	if (resetEvent.shouldCommit()) {
+     		resetEvent.level = level.name;
+     		resetEvent.rows = level.rows;
+     		resetEvent.cols = level.cols;
+     		resetEvent.worms = level.worms;
+     		resetEvent.commit();
+     	}
 	}
 
     // Unlock Hints Window
@@ -535,9 +600,7 @@ public class WormSweeper extends Application {
         unlockHintDialog.getDialogPane().getButtonTypes().addAll(ButtonType.CANCEL, ButtonType.APPLY);
         // When apply is pressed (default it is disabled)
         unlockHintDialog.getDialogPane().lookupButton(ButtonType.APPLY).setDisable(true);unlockHintDialog.getDialogPane().lookupButton(ButtonType.APPLY).addEventFilter(javafx.event.ActionEvent.ACTION, event -> {
-			// disable the unlock hints button in the main playing field (only one hint)
-        	hints.setDisable(true);
-            // reveal a worm in the field as a hint
+            // reveal a worm in the field as a hint (this uses up the only hint if there is one to show)
         	unlockHint(); 
         	// turn off the camera and release resources
             cameraStop();
@@ -554,7 +617,7 @@ public class WormSweeper extends Application {
     }
     
     // Function that starts the camera and detects red
-    // Function that starts the camera and detect red
+    // The camera is opened in the background (if it isn't open already); the dialog shows its frames once it is
     private synchronized void cameraStart(){
     	// if camera is already running
  		if (isCameraRunning) {
@@ -562,100 +625,50 @@ public class WormSweeper extends Application {
             // break out of the function to prevent starting a new thread
             return;
         }
- 		
- 		// Initialize a grabber for frames that captures through built in webcam
- 		grabber = new OpenCVFrameGrabber(0);
- 		// set the aspect ratio of the grabber for the frames grabbed
-        grabber.setImageWidth(160);
-        grabber.setImageHeight(120);
-        
+ 		isCameraRunning = true;
+ 		// a new session, so a camera that opens after its dialog closed is not used
+ 		int session = ++cameraSession;
+ 		cameraRequestedAt = System.nanoTime();
  		System.out.println("Camera Starting");
-        try {
-        	// activate the grabber
-            grabber.start();
-            // set the camera running flag to true
-            isCameraRunning = true;
-            System.out.println("Grabber started");
-        } catch (Exception e) {
-        	// error condition
-            System.out.println("Failed to start grabber" + e.getMessage());
-        }
-        
-        // initialize a single thread executor for the camera
-        cameraExecutor = Executors.newSingleThreadScheduledExecutor();
-        // at a fixed rate, we are grabbing frames
-        cameraExecutor.scheduleAtFixedRate(() -> {
-            try {
-            	// Stop grabbing if the camera has been stopped
-            	if (!isCameraRunning) {
-                    return;  //exit out of the function
-                }
-            	
-            	// Grab a frame from the camera
-                Frame frame = grabber.grab();  
-                
-	        	try{
-	        		// Additional safety check to check if the camera is not off
-	        		if (!isCameraRunning) {
-                        return;  //if it is turned off, exit this function
-                    }
-	        		// if there is a frame
-	        		if (frame != null) {
-	        			           
-	                	// Initialize two Mats, one for the original frame in BGR and one for the original frame in HSV
-	                	org.bytedeco.opencv.opencv_core.Mat src_BGR = new org.bytedeco.opencv.opencv_core.Mat();
-	                	org.bytedeco.opencv.opencv_core.Mat src_HSV = new org.bytedeco.opencv.opencv_core.Mat();
-	                	
-	                	// Initialize a converter that converts from frame to Mat
-	    	            OpenCVFrameConverter.ToMat matConverter = new OpenCVFrameConverter.ToMat(); 
-	    	            // convert the grabbed frame to Mat and store it 
-	    	            src_BGR = matConverter.convert(frame);
-	                	
-	    	            // HSV color space allows for easier detection of colors, so
-	                	// convert the color space of the src_BGR mat from BGR to HSV then store it in src_HSV mat
-	                	opencv_imgproc.cvtColor(src_BGR, src_HSV, opencv_imgproc.COLOR_BGR2HSV);
-	                	
-	                	// Define lower and upper bounds for red color and store as Mat
-	                	org.bytedeco.opencv.opencv_core.Mat lowerRed = new org.bytedeco.opencv.opencv_core.Mat(src_HSV.size(), opencv_core.CV_8UC3, new org.bytedeco.opencv.opencv_core.Scalar(161, 155, 84, 0)); // Lower limit of RED
-	                	org.bytedeco.opencv.opencv_core.Mat upperRed = new org.bytedeco.opencv.opencv_core.Mat(src_HSV.size(), opencv_core.CV_8UC3, new org.bytedeco.opencv.opencv_core.Scalar(179, 255, 255, 0)); // Upper limit of RED
-
-	                    // Create a mask to capture the red color detected
-	                    org.bytedeco.opencv.opencv_core.Mat redMask = new org.bytedeco.opencv.opencv_core.Mat();
-	                    // Apply the mask, the resulting redMask contains the detected red color pixels
-	                    opencv_core.inRange(src_HSV, lowerRed, upperRed, redMask);
-
-	                    // Check if there are any non-zero pixels in the mask (indicating red is detected)
-	                    int nonZeroCount = opencv_core.countNonZero(redMask);
-	                    // if there are non-zero pixels
-	                    if (nonZeroCount > 0) {
-	                    	// on the Java Application thread
-	                    	// Change the text on the Unlock Hints window to show red is detected
-	        				Platform.runLater(() -> instruction.setText("Red detected! Click Apply to unlock a hint."));
-	        				// Highlight the text to make it pop
-	        				Platform.runLater(() -> instruction.setStyle("-fx-background-color: yellow; -fx-font-size: 20px;"));  // Set background color and font size
-	        				// Activate the apply button
-	        				Platform.runLater(() -> unlockHintDialog.getDialogPane().lookupButton(ButtonType.APPLY).setDisable(false));
-	                        
-	                    }
-	                    
-	                    // Initialize a converter for frame to image conversion
-	                    JavaFXFrameConverter imgConverter = new JavaFXFrameConverter();
-	                    // convert the frame to an image
-	    	            Image cameraImage = imgConverter.convert(frame);
-	    				// Update the ImageView in the Unlock Hints window with the new frame captured
-	    	            // on the Java Application thread
-	    				Platform.runLater(() -> cameraView.setImage(cameraImage));
-	    	            }
-	        	} catch (Exception e) {
-	        		// error condition
-	                System.out.println("Error converting/displaying frame: " + e.getMessage());
-	        	}
-	            
-            } catch (Exception e) {
-            	// error condition
-                System.out.println("Error capturing camera frame: " + e.getMessage());
-            }
-           }, 0, 33, TimeUnit.MILLISECONDS);  // grabbing frames at 30 FPS (33ms interval)
+ 		// the capture thread of the previous session must be gone first, it may still be grabbing
+ 		captureStopped.thenCompose(stopped -> camera.acquire()).thenAccept(source -> startCapture(session, source));
+    }
+    
+    // Start grabbing frames from the opened camera for the dialog; camera lifecycle thread
+    private synchronized void startCapture(int session, FrameSource source) {
+    	// the camera could not be opened, or the dialog was closed meanwhile
+    	if (source == null || session != cameraSession || !isCameraRunning) {
+    		if (source != null) {
+    			camera.release();
+    		}
+    		return;
+    	}
+        // buffers and converters for the frames of this session
+        FramePipeline pipeline = new FramePipeline();
+        framePipeline = pipeline;
+        FrameImage frameImage = new FrameImage();
+        // grab and process frames on the capture thread, showing only the latest one
+        captureLoop = new CaptureLoop(source, pipeline, uiBus, snapshot -> {
+        	// if a red item is detected
+        	if (snapshot.red) {
+        		// Change the text on the Unlock Hints window to show red is detected
+        		instruction.setText("Red detected! Click Apply to unlock a hint.");
+        		// Highlight the text to make it pop
+        		instruction.setStyle("-fx-background-color: yellow; -fx-font-size: 20px;");  // Set background color and font size
+        		// Activate the apply button
+        		unlockHintDialog.getDialogPane().lookupButton(ButtonType.APPLY).setDisable(false);
+        	}
+        	// Update the ImageView in the Unlock Hints window with the new frame captured
+        	// (the image is reused, only its pixels change)
+        	cameraView.setImage(frameImage.update(pipeline));
+        	// time from opening the dialog to its first frame
+        	if (cameraRequestedAt != 0) {
+        		Metrics.FIRST_FRAME_NANOS.recordSince(cameraRequestedAt);
+        		cameraRequestedAt = 0;
+        	}
+        });
+        captureLoop.start();
+        System.out.println("Grabber started");
     }
     
     // Function that stops the camera and release resources
@@ -673,292 +686,245 @@ public class WormSweeper extends Application {
         // Set the run camera flag to false to stop grabbing new frames
         isCameraRunning = false;  
 
-        // Stop the scheduled executor to prevent new frame grabs
-        // if the executor exists and is still running
-        if (cameraExecutor != null && !cameraExecutor.isShutdown()) {
-            try {
-            	// initiate shut down the executor
-                cameraExecutor.shutdown();
-                // Wait for a second until all tasks have completed
-                if (!cameraExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
-                	// Force shutdown if tasks are still running
-                    cameraExecutor.shutdownNow();  
-                }
-            } catch (InterruptedException e) {
-            	// force shutdown even if thread is interrupted
-                cameraExecutor.shutdownNow();
-            } finally {
-            	// set executor to null so it's no longer usable
-                cameraExecutor = null;
-            }
-        }
-
-        // Stop and release the grabber
-        try {
-        	// if there is a grabber
-            if (grabber != null) {
-                grabber.stop();      // Stop the camera grabber
-                grabber.release();   // Release resources
-                grabber.close();     // Close the grabber to clean up
-                grabber = null;		 // set it to null so it's not usable
-            }
-            System.out.println("Camera stopped.");
-        } catch (Exception e) {
-        	// error condition
-            System.out.println("Error stopping camera: " + e.getMessage());
+        // Stop the capture thread to prevent new frame grabs. It may still be inside grab() or process(),
+        // so the native frame buffers are released and the camera is handed back (it stays open for a
+        // while in case the dialog is opened again) on the capture thread once it has exited
+        if (captureLoop != null) {
+        	FramePipeline pipeline = framePipeline;
+        	captureStopped = captureLoop.stop().thenRun(() -> {
+        		pipeline.close();
+        		camera.release();
+        	});
+        	captureLoop = null;
+        	framePipeline = null;
+        } else {
+        	camera.release();
         }
-       
+        System.out.println("Camera stopped.");
     }
  	
  	// Function that reveals a worm in the field as a hint
     
  	// Function that gives a hint by revealing a worm 
  	private void unlockHint() {
- 		// initialize row and column variables for the worm to be revealed
-    	int wormRow = 0;
-    	int wormCol = 0;
-    	
-    	// Find the worm coordinates first
-    	// Looping through the button status list
-    	for (int i = 0; i < btnStatus.length; i++) {
-    		ButtonStatus status = btnStatus[i];
-    		// if a button is found to be unrevealed and has a worm
-			if (status == ButtonStatus.UNREVEALED_UNSAFE) {
-				// then set this button status to revealed and unsafe
-				btnStatus[i] = ButtonStatus.REVEALED_UNSAFE;
-				// Then calculate the row and column index according to grid size (1D -> 2D)
-				// Assign to row and column variables for the worm to be revealed
-				wormRow = i / gridSize; 
-				wormCol = i % gridSize;
-				// Break when the first worm is found
-	            break;
-			}
+ 		GameEvents.Hint hintEvent = new GameEvents.Hint();
+ 		hintEvent.begin();
+ 		// Take the hint picked by the hint engine (waiting briefly if it is still working on it)
+ 		HintEngine.Hint hint = hintEngine.awaitHint(board, HINT_WAIT_MS);
+ 		// stop analysing (restarted below if there is nothing to show)
+ 		hintEngine.cancel();
+ 		if (hintEvent.shouldCommit()) {
+ 			hintEvent.index = hint == null ? -1 : hint.index;
+ 			hintEvent.worm = hint != null && hint.worm;
+ 			hintEvent.commit();
+ 		}
+    	// if every worm is already revealed or hooked, or no worms are placed yet (no-guess mode before the
+    	// first click), there is nothing to show and the hint stays unused
+    	if (hint == null) {
+    		refreshHint();
+    		return;
     	}
-    	
-    	// Loop through the children nodes of appleField 
-		for (javafx.scene.Node node : appleField.getChildren()) {
-			// If the node is a Button
-			if (node instanceof Button) { 
-		        // and its coordinate match the coordinate of the worm to be revealed
-	            if (GridPane.getRowIndex(node) == wormRow && GridPane.getColumnIndex(node) == wormCol) {
-	            	// Create a button reference for this node
-	            	Button button = (Button) node;
-	                // Initialize an image of a worm
-	            	Image imageWorm = new Image(getClass().getResourceAsStream("wormInApple.png"));
-	            	// Set the worm image to an imageView
-	            	ImageView wormImgView = new ImageView(imageWorm);
-	            	// Set size of the worm imageView to square
-	            	wormImgView.setFitWidth(20);  
-	            	wormImgView.setFitHeight(20);
-	
-	            	// Show the worm on the cell
-	                button.setGraphic(wormImgView);
-	                // Make the button unclickable 
-	                button.setDisable(true);
-	                // Break out of the loop when worm is revealed
-	                break;
-	            }        
-	        }
-		}
+    	// disable the unlock hints button in the main playing field (only one hint)
+    	hints.setDisable(true);
+    	if (saveFile != null) {
+    		saveFile.setHintUsed(true);
+    	}
+    	recordMove(MoveJournal.HINT, hint.index);
+    	// a safe cell is revealed like a click (it can open an area or even win the game)
+    	if (!hint.worm) {
+    		revealCell(hint.index);
+    		return;
+    	}
+    	// otherwise the board reveals the worm without ending the game
+    	play(Board.HINT_MOVE, hint.index);
     }
  	
    
     // Function that reveals a cell content when it is opened
-    private void revealCell(Button cell, int x, int y) {
-    	// initialize an index according to the cell row and column since the btnStatus list is 1D
-        int index = x * gridSize + y;
+    private void revealCell(int index) {
+    	long start = System.nanoTime();
+    	GameEvents.Reveal revealEvent = new GameEvents.Reveal();
+    	revealEvent.begin();
+        // let the board apply the game rules (including revealing the surrounding cells),
+        // the field shows only the cells the move changed
+        Board.Outcome outcome = play(Board.REVEAL_MOVE, index);
+        
+        // nothing changed (hooked, already revealed or the game is over)
+        if (outcome == Board.Outcome.IGNORED) {
+        	return;
+        }
+        // the position changed, look for a new hint
+        refreshHint();
+        // a finished game can't be resumed
+        if (outcome == Board.Outcome.WORM || outcome == Board.Outcome.WON) {
+        	stopSaving(true);
+        }
+        Metrics.REVEAL_NANOS.recordSince(start);
+        Metrics.REVEAL_CELLS.record(board.getRevealedCount());
+        if (revealEvent.shouldCommit()) {
+        	revealEvent.index = index;
+        	revealEvent.cascadeSize = board.getRevealedCount();
+        	revealEvent.outcome = outcome.name();
+        	revealEvent.commit();
+        }
         
         // If this cell has a worm, game over
-        if (btnStatus[index] == ButtonStatus.UNREVEALED_UNSAFE) {
-        	// Change the status of this cell to revealed and unsafe
-            btnStatus[index] = ButtonStatus.REVEALED_UNSAFE;
-            // Initialize an image of a worm
-            Image imageWorm = new Image(getClass().getResourceAsStream("wormInApple.png"));
-        	// Set the worm image to an imageView
-            ImageView wormImgView = new ImageView(imageWorm);
-            // Set size of the worm imageView to square
-        	wormImgView.setFitWidth(20);  
-        	wormImgView.setFitHeight(20);
-
-            // Show the worm on the cell
-            cell.setGraphic(wormImgView);	  
+        if (outcome == Board.Outcome.WORM) {
             // Trigger game over alert window
             gameOver();
         }
-        // if the cell is safe
-        else if (btnStatus[index] == ButtonStatus.UNREVEALED_SAFE) {
-        	// set the cell status to revealed and safe
-            btnStatus[index] = ButtonStatus.REVEALED_SAFE;
-            // get the adjacent worm count for this cell
-            int adjacentWorms = getAdjWormCnt(x, y);
-            // Decrease count of total unrevealed safe cells
-            unrevealedSafeCells--; 
-            
-            // if there are worms nearby
-            if (adjacentWorms > 0) {
-            	// display the number of adjacent worms in the cell
-                cell.setText(String.valueOf(adjacentWorms));
-                // make the cell button unclickable
-                cell.setDisable(true);
-            } else { // if there are no worms nearby
-                cell.setText(""); // display nothing in the cell
-                // make the cell button unclickable
-                cell.setDisable(true);
 
-                // Then reveal surrounding 3x3 cells 
-                for (int i = -1; i <= 1; i++) {
-                    for (int j = -1; j <= 1; j++) {
-                    	//ignore the current cell
-                        if (i == 0 && j == 0) continue; 
-                        
-                        int newX = x + i; //get a new row for each direction
-                        int newY = y + j; //get a new column for each direction
-                        
-                        // if the new coordinate is within the playing field bounds
-                        if (newX >= 0 && newX < gridSize && newY >= 0 && newY < gridSize) {
-                        	// Loop through the children nodes of appleField to find the neighboring button
-                            for (Node node : (appleField.getChildren())) {
-                            	// if the coordinates of the child node during looping match our new coordinate
-                                if (GridPane.getRowIndex(node) == newX && GridPane.getColumnIndex(node) == newY) {
-                                    // and the node is a button
-                                	if (node instanceof Button) {
-                                		// then create a reference to refer to this button
-                                        Button adjacentTile = (Button) node;
-                                        // and recursively call revealCell function on this neighboring cell
-                                        revealCell(adjacentTile, newX, newY);
-                                    }
-                                    break;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-
-            // Check for victory: if all the safe 
-            if (unrevealedSafeCells == 0 ) {
-            	// trigger game win alert window
-                gameWin();
-            }
+        // Check for victory: if all the safe cells are revealed
+        if (outcome == Board.Outcome.WON) {
+        	// trigger game win alert window
+            gameWin();
         }
     }
-    
-    // Function that returns the number of worms in 3x3 grid vicinity
-    private int getAdjWormCnt(int x, int y) {
-    	// Initialize the count to zero
-		int adjWormCnt = 0;
-		// Initialize the coordinate direction of the 3x3 grid vicinity
-		int[][] coordDirection = {
-				{-1, -1}, {-1, 0}, {-1, 1},
-				{0, -1},          {0, 1},
-				{1, -1}, {1, 0}, {1, 1}
-		};
-		
-		// Looping through the coordinate directions
-		for (int [] direction : coordDirection) {
-			// Calculate the new coordinate row for each direction
-			int xPrime = x + direction[0];
-			// Calculate the new coordinate column for each direction
-			int yPrime = y + direction[1];
-			
-			//checks if the new coordinate is still within the bounds of the game field
-			if (xPrime >= 0 && xPrime < gridSize && yPrime >= 0 && yPrime < gridSize) {
-				// and if the new coordinate cell has any worms
-				if (btnStatus[xPrime* gridSize + yPrime] == ButtonStatus.UNREVEALED_UNSAFE || btnStatus[xPrime* gridSize + yPrime] == ButtonStatus.REVEALED_UNSAFE || btnStatus[xPrime* gridSize + yPrime] == ButtonStatus.FLAGGED_UNSAFE) {
-					// the adjacent worm count is incremented
-					adjWormCnt++;
-				}
-			}
-		}
-		// return total adjacent worm count after checking the 3x3 vicinity
-		return adjWormCnt;
-	}
         
-    // Function to place worms randomly in the field
+    // Function to create a new board and place worms randomly in the field
     private void placeWorms() {
-    	// Initialize a random object
-        Random random = new Random();
-        // Initialize a variable that tracks the number of worms placed in the field
-        int placedWorms = 0;
-        
-        // Loop through the button Status list
-        for (int i = 0; i < gridSize * gridSize; i++) {
-        	// set the status of all buttons to unrevealed and safe first
-            btnStatus[i] = ButtonStatus.UNREVEALED_SAFE;
-        }
-        
-		// Then for the number of worms required for the game level
-        while (placedWorms < wormsTotal) {
-        	// Generate a random index within the total number of grid cells (e.g. 100 for basic)
-            int randIndex = random.nextInt(gridSize* gridSize);
-            // if a worm has not been placed in the cell 
-            if (btnStatus[randIndex] == ButtonStatus.UNREVEALED_SAFE) {
-            	// place a worm by setting the status to unrevealed and safe
-            	btnStatus[randIndex] = ButtonStatus.UNREVEALED_UNSAFE;
-            	// increment the number of worms placed
-            	placedWorms ++;
-            }
-            // if a worm has already been placed in the cell
-            else {
-            	continue; // do nothing
-            }
-        }
-        
-        // Debugging: displays in console a answer map of where the worms are
-        // If the current game is basic level 10x10
-        if (gridSize == 10) {
-        	int line = 0; // initialize a variable to track when to switch lines
-            System.out.println();
-            // Loop through all button status
-            for (ButtonStatus status : btnStatus) {
-            	// for the last 8 button status of each line, print in same line as the first
-            	if (line < 9) {
-                	if (status == ButtonStatus.UNREVEALED_SAFE) {
-                		System.out.print(0); // 0 is safe
-                	}
-                	if (status == ButtonStatus.UNREVEALED_UNSAFE) {
-                		System.out.print(1); // 1 is where the worm is
-                	}
-                	line ++;
-            	} else { // For the first button status of each line, print in the next line
-           
-                	if (status == ButtonStatus.UNREVEALED_SAFE) {
-                		System.out.println(0); // 0 is safe
-                	}
-                	if (status == ButtonStatus.UNREVEALED_UNSAFE) {
-                		System.out.println(1); // 1 is where the worm is
-                	}
-                	line = 0; //reset tracker
-            	}
-            	
-                
-            }
-        } else { // same mechanism for advanced game 15x15
-        	int line = 0; // initialize a variable to track when to switch lines
-            System.out.println();
-            // Loop through all button status
-            for (ButtonStatus status : btnStatus) {
-            	// for the last 14 button status of each line, print in same line as the first
-            	if (line < 14) {
-                	if (status == ButtonStatus.UNREVEALED_SAFE) {
-                		System.out.print(0); // 0 is safe
-                	}
-                	if (status == ButtonStatus.UNREVEALED_UNSAFE) {
-                		System.out.print(1); // 1 is where the worm is
-                	}
-                	line ++;
-            	} else {   // For the first button status of each line, print in the next line
-                	if (status == ButtonStatus.UNREVEALED_SAFE) {
-                		System.out.println(0); // 0 is safe
-                	}
-                	if (status == ButtonStatus.UNREVEALED_UNSAFE) {
-                		System.out.println(1); // 1 is where the worm is
-                	}
-                	line = 0; // reset tracker
-            	}	
-            }
-        }
-        
+    	// Initialize a new board according to the level
+    	board = new Board(level.rows, level.cols, level.worms);
+    	// in no-guess mode the worms are placed once the first clicked cell is known
+    	wormsPlaced = !noGuessMode();
+    	if (wormsPlaced) {
+    		// place the worms from a random seed
+    		board.placeWorms(new Random().nextLong());
+    		printAnswerMap();
+    	}
+    }
+
+    // Record the new game in the journal, with its worms unless they are placed on the first click
+    // (not in placeWorms(): the first board is thrown away when a saved game is resumed)
+    private void journalNewGame() {
+    	if (journal != null) {
+    		journal.gameStarted(level.rows, level.cols, level.worms);
+    		if (wormsPlaced) {
+    			journal.wormsPlaced(board.getSeed(), -1);
+    		}
+    	}
+    }
+    
+    // Whether new games are generated so they can be solved without guessing
+    // (large boards take too long to check, they are always random)
+    private boolean noGuessMode() {
+    	return noGuessBox != null && noGuessBox.isSelected() && !useCanvas();
+    }
+    
+    // Function to place worms so the board can be solved by logic from the first clicked cell
+    private void placeNoGuessWorms(int firstClick) {
+    	Random random = new Random();
+    	OptionalLong seed = noGuessGenerator.generate(level.rows, level.cols, level.worms, firstClick, random.nextLong(), NO_GUESS_TIMEOUT_MS);
+    	if (seed.isEmpty()) {
+    		System.out.println("No guess-free board found in time, placing worms randomly");
+    	}
+    	// rebuild the generated layout from its seed (hooks already placed stay on the board)
+    	board.placeWorms(seed.orElse(random.nextLong()), firstClick);
+    	wormsPlaced = true;
+    	if (journal != null) {
+    		journal.wormsPlaced(board.getSeed(), firstClick);
+    	}
+    	printAnswerMap();
+    	// the game can be saved now that its worms are known
+    	startSaving();
+    }
+    
+    // Start saving the current game so it can be resumed later (no-guess games once their worms are placed)
+    private void startSaving() {
+    	stopSaving(true);
+    	if (!wormsPlaced) {
+    		return;
+    	}
+    	try {
+    		saveFile = SaveFile.create(savePath, board, timeSeconds.get(), hints.isDisable());
+    	} catch (IOException e) {
+    		// error condition
+    		System.out.println("Failed to save the game: " + e.getMessage());
+    	}
+    }
+    
+    // Stop saving the current game, deleting the save file if it can't be resumed any more
+    private void stopSaving(boolean delete) {
+    	if (saveFile != null) {
+    		saveFile.close();
+    		saveFile = null;
+    	}
+    	if (delete) {
+    		SaveFile.delete(savePath);
+    	}
+    }
+    
+    // Record a move of the current game in the journal
+    private void recordMove(int type, int index) {
+    	if (journal != null) {
+    		journal.move(type, index);
+    	}
+    }
+    
+    // Continue a saved game: the board comes back exactly as it was, no moves are replayed.
+    // Returns false if there is no saved game.
+    private boolean resumeSavedGame() {
+    	SaveFile.Saved saved = SaveFile.load(savePath);
+    	if (saved == null) {
+    		return false;
+    	}
+    	Board savedBoard = saved.board;
+    	// play on at the level of the saved board, or a custom level if levels.txt changed since
+    	level = new Level("Saved", savedBoard.rows, savedBoard.cols, savedBoard.wormsTotal, null);
+    	for (Level levelDef : levels) {
+    		if (levelDef.rows == savedBoard.rows && levelDef.cols == savedBoard.cols && levelDef.worms == savedBoard.wormsTotal) {
+    			level = levelDef;
+    		}
+    	}
+    	board = savedBoard;
+    	wormsPlaced = true;
+    	// the journal can't rebuild this position, its moves are recorded but not replayed
+    	recordMove(MoveJournal.RESUMED, 0);
+    	timeSeconds.set(saved.elapsedSeconds);
+    	hints.setDisable(saved.hintUsed);
+    	uiBus.setText(hookCountLabel, String.valueOf(board.getHooksLeft()));
+    	// the field shows the revealed cells and hooks of the board
+    	reDraw();
+    	System.out.println("Resumed saved game (board seed " + board.getSeed() + ")");
+    	// keep saving the resumed game
+    	try {
+    		saveFile = SaveFile.create(savePath, board, saved.elapsedSeconds, saved.hintUsed);
+    	} catch (IOException e) {
+    		// error condition
+    		System.out.println("Failed to save the game: " + e.getMessage());
+    	}
+    	return true;
+    }
+    
+    // Write the saved game, the journal and the metrics to disk and close the camera when the program closes
+    @Override
+    public void stop() {
+    	stopSaving(false);
+    	if (journal != null) {
+    		journal.close();
+    	}
+    	// the camera is closed once the capture thread is gone (it can't be interrupted inside grab())
+    	if (isCameraRunning) {
+    		cameraStop();
+    	}
+    	try {
+    		captureStopped.get(1, TimeUnit.SECONDS);
+    	} catch (Exception e) {
+    		// error condition
+    		System.out.println("Capture thread did not stop: " + e);
+    	}
+    	camera.shutdown();
+    	Metrics.writeSnapshot(Metrics.defaultPath());
+    }
+    
+    // Debugging: displays in console the board seed and a answer map of where the worms are (0 is safe, 1 is a worm)
+    private void printAnswerMap() {
+    	System.out.println();
+    	System.out.println("Board seed: " + board.getSeed());
+    	// only button grid sized boards are printed, large boards would flood the console
+    	if (!useCanvas()) {
+    		System.out.print(board.answerMap());
+    	}
     }
     
     // Window for Game Win
@@ -970,6 +936,9 @@ public class WormSweeper extends Application {
         }
 		// Store the time used in the game in a variable
 		int timeUsed = timeSeconds.get();
+		Level wonLevel = level;
+		boolean hintUsed = hints.isDisable();
+		long seed = board.getSeed();
 		
 		// Create alert window for game over
         Alert alertGameWin = new Alert(AlertType.INFORMATION);
@@ -977,7 +946,17 @@ public class WormSweeper extends Application {
         alertGameWin.setTitle("Game Completed");
         alertGameWin.setHeaderText("You Won!"); 
         // Display instruction for buttons usage
-        alertGameWin.setContentText("You used " + timeUsed + " seconds! Thanks for playing!\nPress Restart to start a new game or Quit to close game.");
+        String thanks = "You used " + timeUsed + " seconds! Thanks for playing!\n";
+        String buttonsHelp = "Press Restart to start a new game or Quit to close game.";
+        alertGameWin.setContentText(thanks + buttonsHelp);
+        // Record the game and show its rank among the games won at this level once the leaderboard is
+        // read (in the background since startup, the dialog doesn't wait for it)
+        leaderboard.thenAcceptAsync(scores -> {
+        	int rank = scores.record(wonLevel.rows, wonLevel.cols, wonLevel.worms, timeUsed, hintUsed, seed);
+        	Leaderboard.LevelStats levelStats = scores.get(wonLevel.rows, wonLevel.cols, wonLevel.worms);
+        	alertGameWin.setContentText(thanks + "Rank " + rank + " of " + levelStats.games
+        			+ " games won at this level (best " + levelStats.bestSeconds + " seconds)\n" + buttonsHelp);
+        }, Platform::runLater);
         
         // Creating two buttons: Restart and Quit
         ButtonType buttonRestart = new ButtonType("Restart");
@@ -986,16 +965,13 @@ public class WormSweeper extends Application {
         alertGameWin.getButtonTypes().setAll(buttonRestart, buttonQuit);
         // When restart button is pressed, start a game in the same level
         alertGameWin.getDialogPane().lookupButton(buttonRestart).addEventFilter(javafx.event.ActionEvent.ACTION, event -> {
-            // if current game played is basic level
-        	if (gridSize == 10) {
-            	resetGame(10,10,90); //Restart basic game 
-            } else { // if current game played is advanced level
-            	resetGame(15,30,195); //Restart advanced game
-            }
+            // restart the level that was just played
+        	resetGame(level);
         });
         // When quit button is pressed, close the entire game
         alertGameWin.getDialogPane().lookupButton(buttonQuit).addEventFilter(javafx.event.ActionEvent.ACTION, event -> {
-            System.exit(0); //Close the program
+            // Close the program (through stop(), which writes the journal and the saved game)
+            Platform.exit();
         });
 
         //Show the alert window and wait for user input
@@ -1025,16 +1001,13 @@ public class WormSweeper extends Application {
         alertGameOver.getButtonTypes().setAll(buttonRestart, buttonQuit);
         // When restart button is pressed, start a game in the same level
         alertGameOver.getDialogPane().lookupButton(buttonRestart).addEventFilter(javafx.event.ActionEvent.ACTION, event -> {
-            // If the current game is basic level
-        	if (gridSize == 10) {
-            	resetGame(10,10,90); //Restart basic game 
-            } else { //If the current game is advanced level
-            	resetGame(15,30,195); //Restart advanced game
-            }
+            // restart the level that was just played
+        	resetGame(level);
         });
         // When quit button is pressed, close the entire game
         alertGameOver.getDialogPane().lookupButton(buttonQuit).addEventFilter(javafx.event.ActionEvent.ACTION, event -> {
-            System.exit(0); //Close the program
+            // Close the program (through stop(), which writes the journal and the saved game)
+            Platform.exit();
         });
         
         //Show the alert window and wait for user input